@@ -0,0 +1,122 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Many named counts at once. Conditions are deduplicated by cache key across all the
+// queries; index-backed ones are lookups, and every condition that needs a column
+// scan is evaluated in one shared pass over the rows instead of one scan per count.
+public final class BatchCount {
+
+    private BatchCount() {
+    }
+
+    // Count per query name, in the order given
+    public static Map<String, Long> countAll(Map<String, CountQuery> queries, ColumnarDataset data) {
+        int rowCount = data.getRowCount();
+        Map<String, RowBitmap> rowsByKey = new HashMap<>();
+        Map<String, PendingScan> scans = new LinkedHashMap<>();
+
+        for (CountQuery query : queries.values()) {
+            for (CountQuery.Condition condition : query.getConditions()) {
+                String key = condition.getKey(data);
+                if (key == null || rowsByKey.containsKey(key) || scans.containsKey(key)) continue;
+
+                RowBitmap cached = FilterResultCache.shared().getIfComplete(data, key);
+                if (cached != null) {
+                    rowsByKey.put(key, cached);
+                    continue;
+                }
+
+                ColumnarDataset.Column column = data.getColumn(FilterCompiler.resolveColumn(data.getHeaders(), condition.getColumn()));
+                RowBitmap indexed = condition.indexedRows(column, rowCount);
+                if (indexed != null) {
+                    rowsByKey.put(key, store(data, key, condition.isNegated() ? indexed.complement(rowCount) : indexed));
+                } else {
+                    scans.put(key, new PendingScan(key, condition, column));
+                }
+            }
+        }
+
+        scanOnce(data, new ArrayList<>(scans.values()), rowsByKey);
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, CountQuery> entry : queries.entrySet()) {
+            counts.put(entry.getKey(), (long) combine(entry.getValue(), data, rowsByKey).getCardinality());
+        }
+        return counts;
+    }
+
+    private static final class PendingScan {
+        private final String key;
+        private final CountQuery.Condition condition;
+        private final ColumnarDataset.Column column;
+
+        PendingScan(String key, CountQuery.Condition condition, ColumnarDataset.Column column) {
+            this.key = key;
+            this.condition = condition;
+            this.column = column;
+        }
+    }
+
+    // Every row is read once and tested against all the pending conditions. Chunks of
+    // 65536 rows are scanned on ParallelRowScan's pool on large sheets and joined in order.
+    private static void scanOnce(ColumnarDataset data, List<PendingScan> scans, Map<String, RowBitmap> rowsByKey) {
+        if (scans.isEmpty()) return;
+
+        int rowCount = data.getRowCount();
+        int chunkCount = (rowCount + RowBitmap.CHUNK_SIZE - 1) / RowBitmap.CHUNK_SIZE;
+        RowBitmap[][] parts = new RowBitmap[scans.size()][chunkCount];
+
+        ParallelRowScan.forEachChunk(rowCount, chunk -> {
+            RowBitmap.Builder[] builders = new RowBitmap.Builder[scans.size()];
+            for (int i = 0; i < builders.length; i++) {
+                builders[i] = new RowBitmap.Builder();
+            }
+
+            int end = Math.min(rowCount, (chunk + 1) * RowBitmap.CHUNK_SIZE);
+            for (int row = chunk * RowBitmap.CHUNK_SIZE; row < end; row++) {
+                for (int i = 0; i < builders.length; i++) {
+                    PendingScan scan = scans.get(i);
+                    if (scan.condition.matches(scan.column, row)) {
+                        builders[i].add(row);
+                    }
+                }
+            }
+
+            for (int i = 0; i < builders.length; i++) {
+                parts[i][chunk] = builders[i].build();
+            }
+        });
+
+        for (int i = 0; i < scans.size(); i++) {
+            PendingScan scan = scans.get(i);
+            RowBitmap rows = RowBitmap.concat(parts[i]);
+            rowsByKey.put(scan.key, store(data, scan.key, scan.condition.isNegated() ? rows.complement(rowCount) : rows));
+        }
+    }
+
+    private static RowBitmap store(ColumnarDataset data, String key, RowBitmap rows) {
+        return FilterResultCache.shared().getOrCompute(data, key, () -> rows);
+    }
+
+    private static RowBitmap combine(CountQuery query, ColumnarDataset data, Map<String, RowBitmap> rowsByKey) {
+        List<CountQuery.Condition> conditions = query.getConditions();
+        if (conditions.isEmpty()) {
+            return RowBitmap.full(data.getRowCount());
+        }
+
+        RowBitmap result = null;
+        for (CountQuery.Condition condition : conditions) {
+            String key = condition.getKey(data);
+            RowBitmap rows = key != null ? rowsByKey.get(key) : condition.rows(data);
+            if (result == null) {
+                result = rows;
+            } else {
+                result = query.isOrMode() ? result.or(rows) : result.and(rows);
+            }
+        }
+        return result;
+    }
+}
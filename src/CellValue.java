@@ -0,0 +1,105 @@
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ObservableList;
+
+import java.util.List;
+
+// Read-only table cell value. The tables here are rebuilt rather than edited in place,
+// so a value never changes and listeners are not kept; cells just read getValue() on
+// each update. Much lighter than a SimpleStringProperty per rendered cell.
+public final class CellValue implements ObservableValue<String> {
+    private static final CellValue EMPTY = new CellValue("");
+    private static final CellValue ZERO = new CellValue("0");
+
+    private final String value;
+
+    private CellValue(String value) {
+        this.value = value;
+    }
+
+    public static ObservableValue<String> of(String value) {
+        if (value == null || value.isEmpty()) return EMPTY;
+        if (value.equals("0")) return ZERO;
+        return new CellValue(value);
+    }
+
+    // Cell of a row list, "" past its end
+    public static ObservableValue<String> of(List<String> row, int columnIndex) {
+        return row != null && columnIndex < row.size() ? of(row.get(columnIndex)) : EMPTY;
+    }
+
+    @Override
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public void addListener(ChangeListener<? super String> listener) {
+    }
+
+    @Override
+    public void removeListener(ChangeListener<? super String> listener) {
+    }
+
+    @Override
+    public void addListener(InvalidationListener listener) {
+    }
+
+    @Override
+    public void removeListener(InvalidationListener listener) {
+    }
+
+    // Values of one dataset column. Text columns get one shared value per distinct
+    // string, so scrolling through them allocates nothing. Safe to read from the export
+    // thread too: at worst a value is created twice.
+    public static final class ColumnCache {
+        private final int columnIndex;
+        private volatile Dictionary dictionary;
+
+        public ColumnCache(int columnIndex) {
+            this.columnIndex = columnIndex;
+        }
+
+        private static final class Dictionary {
+            private final ColumnarDataset.TextColumn column;
+            private final CellValue[] byCode;
+
+            Dictionary(ColumnarDataset.TextColumn column) {
+                this.column = column;
+                this.byCode = new CellValue[column.getDictionarySize()];
+            }
+        }
+
+        public ObservableValue<String> get(ObservableList<String> row) {
+            if (!(row instanceof ColumnarDataset.RowView)) {
+                return of(row, columnIndex);
+            }
+
+            ColumnarDataset.RowView view = (ColumnarDataset.RowView) row;
+            ColumnarDataset dataset = view.getDataset();
+            if (columnIndex >= dataset.getColumnCount()) return EMPTY;
+
+            ColumnarDataset.Column rowColumn = dataset.getColumn(columnIndex);
+            if (!(rowColumn instanceof ColumnarDataset.TextColumn)) {
+                return of(rowColumn.getValue(view.getRowIndex()));
+            }
+
+            ColumnarDataset.TextColumn textColumn = (ColumnarDataset.TextColumn) rowColumn;
+            int code = textColumn.getCode(view.getRowIndex());
+            if (code < 0) return EMPTY;
+
+            Dictionary current = dictionary;
+            if (current == null || current.column != textColumn) {
+                current = new Dictionary(textColumn);
+                dictionary = current;
+            }
+            CellValue cellValue = current.byCode[code];
+            if (cellValue == null) {
+                cellValue = new CellValue(textColumn.getDictionaryValue(code));
+                current.byCode[code] = cellValue;
+            }
+            return cellValue;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Sorted distinct non-empty values of one column (trimmed) with how many rows hold
+// each. Built once per column from its value index and kept with the column, so the
+// value pickers stop rescanning the sheet; a data change makes new columns and with
+// them new dictionaries. The pickers' SuggestionIndex is kept here too, so every
+// field showing the column shares one.
+public final class ColumnDictionary {
+    private final ColumnValueIndex valueIndex;
+    private final String[] values;
+    private final int[] counts;
+    private final List<String> valueList;
+    private volatile SuggestionIndex suggestionIndex;
+
+    private ColumnDictionary(ColumnValueIndex valueIndex, String[] values, int[] counts) {
+        this.valueIndex = valueIndex;
+        this.values = values;
+        this.counts = counts;
+        this.valueList = new ValueList();
+    }
+
+    static ColumnDictionary build(ColumnarDataset.Column column) {
+        ColumnValueIndex index = column.getValueIndex();
+        Integer[] ids = new Integer[index.getValueCount()];
+        for (int id = 0; id < ids.length; id++) {
+            ids[id] = id;
+        }
+        Arrays.sort(ids, (a, b) -> index.getValue(a).compareTo(index.getValue(b)));
+
+        String[] values = new String[ids.length];
+        int[] counts = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            values[i] = index.getValue(ids[i]);
+            counts[i] = index.getRowsForValue(ids[i]).getCardinality();
+        }
+        return new ColumnDictionary(index, values, counts);
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public String getValue(int position) {
+        return values[position];
+    }
+
+    // Rows holding the value at position
+    public int getCount(int position) {
+        return counts[position];
+    }
+
+    // Position of the value, or -(insertion point) - 1 as in Arrays.binarySearch
+    public int indexOf(String value) {
+        return Arrays.binarySearch(values, value);
+    }
+
+    // Read-only view of the sorted values, nothing copied
+    public List<String> getValues() {
+        return valueList;
+    }
+
+    public SuggestionIndex getSuggestionIndex() {
+        SuggestionIndex index = suggestionIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = suggestionIndex;
+                if (index == null) {
+                    index = SuggestionIndex.of(valueIndex);
+                    suggestionIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private final class ValueList extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+import java.util.Arrays;
+
+// Rows of one column ordered by a parsed key (epoch day or number), skipping rows
+// without a valid key. Range operators binary-search the key array for a contiguous
+// slice of the permutation and turn it into a row bitmap.
+public final class ColumnSortIndex {
+    private final int[] rows;
+    private final double[] keys;
+
+    private ColumnSortIndex(int[] rows, double[] keys) {
+        this.rows = rows;
+        this.keys = keys;
+    }
+
+    static ColumnSortIndex build(ColumnarDataset.Column column, boolean dates) {
+        int size = column.size();
+        int[] validRows = new int[size];
+        double[] validKeys = new double[size];
+        int count = 0;
+
+        for (int row = 0; row < size; row++) {
+            double key;
+            if (dates) {
+                int day = column.getDateKey(row);
+                if (day == TypedValues.NO_DATE) continue;
+                key = day;
+            } else {
+                key = column.getNumberKey(row);
+                if (Double.isNaN(key)) continue;
+                if (key == 0) key = 0.0; // -0.0 compares equal to 0.0
+            }
+            validRows[count] = row;
+            validKeys[count] = key;
+            count++;
+        }
+
+        // Rank each key among the distinct keys, then sort (rank, row) pairs as longs
+        double[] distinct = Arrays.copyOf(validKeys, count);
+        Arrays.sort(distinct);
+        int distinctCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinctCount == 0 || distinct[i] != distinct[distinctCount - 1]) {
+                distinct[distinctCount++] = distinct[i];
+            }
+        }
+
+        long[] packed = new long[count];
+        for (int i = 0; i < count; i++) {
+            long rank = Arrays.binarySearch(distinct, 0, distinctCount, validKeys[i]);
+            packed[i] = (rank << 32) | validRows[i];
+        }
+        Arrays.sort(packed);
+
+        int[] rows = new int[count];
+        double[] keys = new double[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = (int) packed[i];
+            keys[i] = distinct[(int) (packed[i] >>> 32)];
+        }
+        return new ColumnSortIndex(rows, keys);
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    // Row at a position of the key order, and its key
+    int getRow(int position) {
+        return rows[position];
+    }
+
+    double getKey(int position) {
+        return keys[position];
+    }
+
+    public RowBitmap compare(TypedValues.Comparison comparison, double operand) {
+        if (Double.isNaN(operand)) return RowBitmap.empty();
+
+        switch (comparison) {
+            case LESS_THAN: return slice(0, lowerBound(operand));
+            case LESS_OR_EQUAL: return slice(0, upperBound(operand));
+            case GREATER_THAN: return slice(upperBound(operand), keys.length);
+            default: return slice(lowerBound(operand), keys.length);
+        }
+    }
+
+    public RowBitmap between(double from, double to) {
+        if (Double.isNaN(from) || Double.isNaN(to)) return RowBitmap.empty();
+        return slice(lowerBound(from), upperBound(to));
+    }
+
+    // First position with key >= value
+    private int lowerBound(double value) {
+        int low = 0, high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < value) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    // First position with key > value
+    private int upperBound(double value) {
+        int low = 0, high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] <= value) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private RowBitmap slice(int from, int to) {
+        if (from >= to) return RowBitmap.empty();
+        int[] slice = Arrays.copyOfRange(rows, from, to);
+        Arrays.sort(slice);
+        return RowBitmap.fromSorted(slice, 0, slice.length);
+    }
+
+    long estimateHeapBytes() {
+        return rows.length * 12L;
+    }
+}
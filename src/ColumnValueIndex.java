@@ -0,0 +1,140 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Inverted index for one column: trimmed cell text -> bitmap of the rows holding it.
+// Built on first use from the column's own codes, so it is one pass plus a counting sort.
+public final class ColumnValueIndex {
+    private final String[] values;
+    private final RowBitmap[] rowsByValue;
+    private final Map<String, Integer> idByValue;
+    private final RowBitmap emptyRows;
+    private final RowBitmap filledRows;
+    private volatile TrigramIndex trigramIndex;
+
+    private ColumnValueIndex(String[] values, RowBitmap[] rowsByValue, Map<String, Integer> idByValue,
+                             RowBitmap emptyRows, RowBitmap filledRows) {
+        this.values = values;
+        this.rowsByValue = rowsByValue;
+        this.idByValue = idByValue;
+        this.emptyRows = emptyRows;
+        this.filledRows = filledRows;
+    }
+
+    static ColumnValueIndex build(ColumnarDataset.Column column) {
+        int size = column.size();
+        int[] ids = new int[size];
+        Map<String, Integer> idByValue = new HashMap<>();
+        List<String> values = new ArrayList<>();
+
+        if (column instanceof ColumnarDataset.TextColumn) {
+            ColumnarDataset.TextColumn textColumn = (ColumnarDataset.TextColumn) column;
+            int[] idByCode = new int[textColumn.getDictionarySize()];
+            for (int code = 0; code < idByCode.length; code++) {
+                idByCode[code] = idFor(textColumn.getDictionaryValue(code).trim(), idByValue, values);
+            }
+            for (int row = 0; row < size; row++) {
+                int code = textColumn.getCode(row);
+                ids[row] = code < 0 ? -1 : idByCode[code];
+            }
+        } else {
+            for (int row = 0; row < size; row++) {
+                ids[row] = idFor(column.getValue(row).trim(), idByValue, values);
+            }
+        }
+
+        // Counting sort of row ids by value id; rows stay ascending within each value
+        int valueCount = values.size();
+        int[] offsets = new int[valueCount + 2];
+        for (int id : ids) {
+            offsets[id + 2]++;
+        }
+        for (int i = 2; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] sortedRows = new int[size];
+        int[] cursor = offsets.clone();
+        for (int row = 0; row < size; row++) {
+            sortedRows[cursor[ids[row] + 1]++] = row;
+        }
+
+        RowBitmap emptyRows = RowBitmap.fromSorted(sortedRows, offsets[0], offsets[1]);
+        RowBitmap[] rowsByValue = new RowBitmap[valueCount];
+        for (int id = 0; id < valueCount; id++) {
+            rowsByValue[id] = RowBitmap.fromSorted(sortedRows, offsets[id + 1], offsets[id + 2]);
+        }
+        RowBitmap filledRows = emptyRows.complement(size);
+
+        return new ColumnValueIndex(values.toArray(new String[0]), rowsByValue, idByValue, emptyRows, filledRows);
+    }
+
+    private static int idFor(String value, Map<String, Integer> idByValue, List<String> values) {
+        if (value.isEmpty()) return -1;
+        Integer id = idByValue.get(value);
+        if (id == null) {
+            id = values.size();
+            idByValue.put(value, id);
+            values.add(value);
+        }
+        return id;
+    }
+
+    public RowBitmap getRows(String value) {
+        Integer id = idByValue.get(value);
+        return id != null ? rowsByValue[id] : RowBitmap.empty();
+    }
+
+    public RowBitmap getEmptyRows() {
+        return emptyRows;
+    }
+
+    public RowBitmap getFilledRows() {
+        return filledRows;
+    }
+
+    // Rows whose trimmed value contains the text, ignoring case (the "Has" operator)
+    public RowBitmap getRowsContaining(String text, int rowCount) {
+        String lowerText = text.toLowerCase();
+        if (lowerText.isEmpty()) {
+            return RowBitmap.full(rowCount);
+        }
+
+        int[] ids = getTrigramIndex().findContaining(lowerText);
+        if (ids.length == 1) {
+            return rowsByValue[ids[0]];
+        }
+
+        RowBitmap.Builder builder = new RowBitmap.Builder();
+        for (int id : ids) {
+            rowsByValue[id].forEach(builder::add);
+        }
+        return builder.build();
+    }
+
+    public TrigramIndex getTrigramIndex() {
+        TrigramIndex index = trigramIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = trigramIndex;
+                if (index == null) {
+                    index = TrigramIndex.build(this);
+                    trigramIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    public int getValueCount() {
+        return values.length;
+    }
+
+    public String getValue(int id) {
+        return values[id];
+    }
+
+    public RowBitmap getRowsForValue(int id) {
+        return rowsByValue[id];
+    }
+}
@@ -0,0 +1,577 @@
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Column-oriented, immutable copy of a loaded sheet. Every column is stored once:
+// text as dictionary codes, whole/decimal numbers as double[], dd/MM/yyyy dates as
+// epoch days, with a null bitmap for empty cells. getValue() gives back exactly the
+// string the loader produced, so row views behave like the old ObservableList rows.
+public class ColumnarDataset {
+    public enum ColumnType { TEXT, NUMERIC, DATE }
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final long version;
+    private final List<String> headers;
+    private final Column[] columns;
+    private final int rowCount;
+    private final List<ObservableList<String>> rows;
+
+    private ColumnarDataset(List<String> headers, Column[] columns, int rowCount) {
+        this.headers = Collections.unmodifiableList(new ArrayList<>(headers));
+        this.columns = columns;
+        this.rowCount = rowCount;
+        this.rows = new RowList();
+        this.version = VERSIONS.incrementAndGet();
+    }
+
+    public static ColumnarDataset empty() {
+        return new ColumnarDataset(new ArrayList<>(), new Column[0], 0);
+    }
+
+    // Unique per dataset instance, so a version identifies exactly one set of rows
+    public long getVersion() {
+        return version;
+    }
+
+    public List<String> getHeaders() {
+        return headers;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public Column getColumn(int columnIndex) {
+        return columns[columnIndex];
+    }
+
+    public String getValue(int row, int columnIndex) {
+        if (columnIndex < 0 || columnIndex >= columns.length) {
+            return "";
+        }
+        return columns[columnIndex].getValue(row);
+    }
+
+    // Read-only row views over the columns; nothing is copied per row.
+    public List<ObservableList<String>> getRows() {
+        return rows;
+    }
+
+    public ColumnarDataset withColumn(String columnName, List<String> values) {
+        ColumnBuilder builder = new ColumnBuilder();
+        for (int i = 0; i < rowCount; i++) {
+            String value = values != null && i < values.size() ? values.get(i) : "";
+            builder.add(value != null ? value : "");
+        }
+
+        List<String> newHeaders = new ArrayList<>(headers);
+        newHeaders.add(columnName);
+        Column[] newColumns = Arrays.copyOf(columns, columns.length + 1);
+        newColumns[columns.length] = builder.build();
+        return new ColumnarDataset(newHeaders, newColumns, rowCount);
+    }
+
+    public long estimateHeapBytes() {
+        long total = 0;
+        for (Column column : columns) {
+            total += column.estimateHeapBytes();
+        }
+        return total;
+    }
+
+    private class RowList extends AbstractList<ObservableList<String>> implements RandomAccess {
+        @Override
+        public ObservableList<String> get(int index) {
+            if (index < 0 || index >= rowCount) {
+                throw new IndexOutOfBoundsException("Row " + index + " of " + rowCount);
+            }
+            return new RowView(ColumnarDataset.this, index);
+        }
+
+        @Override
+        public int size() {
+            return rowCount;
+        }
+    }
+
+    public static class RowView extends ObservableListBase<String> {
+        private final ColumnarDataset dataset;
+        private final int rowIndex;
+
+        RowView(ColumnarDataset dataset, int rowIndex) {
+            this.dataset = dataset;
+            this.rowIndex = rowIndex;
+        }
+
+        public int getRowIndex() {
+            return rowIndex;
+        }
+
+        public ColumnarDataset getDataset() {
+            return dataset;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= dataset.columns.length) {
+                throw new IndexOutOfBoundsException("Column " + index + " of " + dataset.columns.length);
+            }
+            return dataset.columns[index].getValue(rowIndex);
+        }
+
+        @Override
+        public int size() {
+            return dataset.columns.length;
+        }
+    }
+
+    public abstract static class Column {
+        protected final int size;
+        private final long[] nullBits;
+        private volatile ColumnValueIndex valueIndex;
+        private volatile ColumnSortIndex dateSortIndex;
+        private volatile ColumnSortIndex numberSortIndex;
+        private volatile int[] sortRanks;
+        private volatile ColumnDictionary valueDictionary;
+
+        Column(int size, long[] nullBits) {
+            this.size = size;
+            this.nullBits = nullBits;
+        }
+
+        public abstract ColumnType getType();
+
+        protected abstract String formatValue(int row);
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isNull(int row) {
+            return (nullBits[row >>> 6] & (1L << row)) != 0;
+        }
+
+        public String getValue(int row) {
+            return isNull(row) ? "" : formatValue(row);
+        }
+
+        // Typed forms of the trimmed cell text used by the comparison operators:
+        // NaN when it is not a number, TypedValues.NO_DATE when it is not a date.
+        public double getNumberKey(int row) {
+            return TypedValues.parseNumber(getValue(row).trim());
+        }
+
+        public int getDateKey(int row) {
+            return TypedValues.parseDate(getValue(row).trim());
+        }
+
+        // Built on first use; columns are immutable so the index never goes stale
+        public ColumnValueIndex getValueIndex() {
+            ColumnValueIndex index = valueIndex;
+            if (index == null) {
+                synchronized (this) {
+                    index = valueIndex;
+                    if (index == null) {
+                        index = ColumnValueIndex.build(this);
+                        valueIndex = index;
+                    }
+                }
+            }
+            return index;
+        }
+
+        // Rows ordered by date key or by number key, also built on first use
+        public ColumnSortIndex getSortIndex(boolean dates) {
+            ColumnSortIndex index = dates ? dateSortIndex : numberSortIndex;
+            if (index == null) {
+                synchronized (this) {
+                    index = dates ? dateSortIndex : numberSortIndex;
+                    if (index == null) {
+                        index = ColumnSortIndex.build(this, dates);
+                        if (dates) {
+                            dateSortIndex = index;
+                        } else {
+                            numberSortIndex = index;
+                        }
+                    }
+                }
+            }
+            return index;
+        }
+
+        // Table sort rank of every row (see RowSorter), also built on first use
+        public int[] getSortRanks() {
+            int[] ranks = sortRanks;
+            if (ranks == null) {
+                synchronized (this) {
+                    ranks = sortRanks;
+                    if (ranks == null) {
+                        ranks = RowSorter.buildRanks(this);
+                        sortRanks = ranks;
+                    }
+                }
+            }
+            return ranks;
+        }
+
+        // Sorted distinct values with their counts, for the value pickers; built on first use
+        public ColumnDictionary getDictionary() {
+            ColumnDictionary values = valueDictionary;
+            if (values == null) {
+                synchronized (this) {
+                    values = valueDictionary;
+                    if (values == null) {
+                        values = ColumnDictionary.build(this);
+                        valueDictionary = values;
+                    }
+                }
+            }
+            return values;
+        }
+
+        long estimateHeapBytes() {
+            return nullBits.length * 8L;
+        }
+    }
+
+    public static class TextColumn extends Column {
+        private final int[] codes;
+        private final String[] dictionary;
+        private volatile double[] numberKeys;
+        private volatile int[] dateKeys;
+
+        TextColumn(int size, long[] nullBits, int[] codes, String[] dictionary) {
+            super(size, nullBits);
+            this.codes = codes;
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public ColumnType getType() {
+            return ColumnType.TEXT;
+        }
+
+        @Override
+        protected String formatValue(int row) {
+            return dictionary[codes[row]];
+        }
+
+        // -1 for empty cells
+        public int getCode(int row) {
+            return isNull(row) ? -1 : codes[row];
+        }
+
+        public int getDictionarySize() {
+            return dictionary.length;
+        }
+
+        public String getDictionaryValue(int code) {
+            return dictionary[code];
+        }
+
+        // Parsed once per distinct value, on first use
+        @Override
+        public double getNumberKey(int row) {
+            if (isNull(row)) return Double.NaN;
+
+            double[] keys = numberKeys;
+            if (keys == null) {
+                keys = new double[dictionary.length];
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = TypedValues.parseNumber(dictionary[i].trim());
+                }
+                numberKeys = keys;
+            }
+            return keys[codes[row]];
+        }
+
+        @Override
+        public int getDateKey(int row) {
+            if (isNull(row)) return TypedValues.NO_DATE;
+
+            int[] keys = dateKeys;
+            if (keys == null) {
+                keys = new int[dictionary.length];
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = TypedValues.parseDate(dictionary[i].trim());
+                }
+                dateKeys = keys;
+            }
+            return keys[codes[row]];
+        }
+
+        @Override
+        long estimateHeapBytes() {
+            long total = super.estimateHeapBytes() + codes.length * 4L + dictionary.length * 8L;
+            for (String value : dictionary) {
+                total += 40 + value.length() * 2L;
+            }
+            return total;
+        }
+    }
+
+    public static class NumericColumn extends Column {
+        private final double[] values;
+
+        NumericColumn(int size, long[] nullBits, double[] values) {
+            super(size, nullBits);
+            this.values = values;
+        }
+
+        @Override
+        public ColumnType getType() {
+            return ColumnType.NUMERIC;
+        }
+
+        @Override
+        protected String formatValue(int row) {
+            return formatNumber(values[row]);
+        }
+
+        public double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        public double getNumberKey(int row) {
+            return isNull(row) ? Double.NaN : values[row];
+        }
+
+        @Override
+        public int getDateKey(int row) {
+            return TypedValues.NO_DATE;
+        }
+
+        @Override
+        long estimateHeapBytes() {
+            return super.estimateHeapBytes() + values.length * 8L;
+        }
+    }
+
+    public static class DateColumn extends Column {
+        private final int[] epochDays;
+
+        DateColumn(int size, long[] nullBits, int[] epochDays) {
+            super(size, nullBits);
+            this.epochDays = epochDays;
+        }
+
+        @Override
+        public ColumnType getType() {
+            return ColumnType.DATE;
+        }
+
+        @Override
+        protected String formatValue(int row) {
+            return formatDate(epochDays[row]);
+        }
+
+        public int getEpochDay(int row) {
+            return epochDays[row];
+        }
+
+        @Override
+        public double getNumberKey(int row) {
+            return Double.NaN;
+        }
+
+        @Override
+        public int getDateKey(int row) {
+            return isNull(row) ? TypedValues.NO_DATE : epochDays[row];
+        }
+
+        @Override
+        long estimateHeapBytes() {
+            return super.estimateHeapBytes() + epochDays.length * 4L;
+        }
+    }
+
+    // Same rendering as ExcelDataManager uses for numeric cells
+    static String formatNumber(double value) {
+        if (value == Math.floor(value) && !Double.isInfinite(value)) {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(value);
+    }
+
+    static String formatDate(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        char[] chars = new char[10];
+        writeDigits(chars, 0, date.getDayOfMonth(), 2);
+        chars[2] = '/';
+        writeDigits(chars, 3, date.getMonthValue(), 2);
+        chars[5] = '/';
+        writeDigits(chars, 6, date.getYear(), 4);
+        return new String(chars);
+    }
+
+    private static void writeDigits(char[] chars, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    // Strict dd/MM/yyyy, only accepted when it formats back to the same text
+    private static boolean isStrictDate(String value) {
+        if (value.length() != 10 || value.charAt(2) != '/' || value.charAt(5) != '/') {
+            return false;
+        }
+        for (int i = 0; i < 10; i++) {
+            if (i != 2 && i != 5 && (value.charAt(i) < '0' || value.charAt(i) > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int parseStrictDate(String value) {
+        int day = Integer.parseInt(value.substring(0, 2));
+        int month = Integer.parseInt(value.substring(3, 5));
+        int year = Integer.parseInt(value.substring(6, 10));
+        return (int) LocalDate.of(year, month, day).toEpochDay();
+    }
+
+    private static final class ColumnBuilder {
+        private final Map<String, Integer> codeByValue = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private int[] codes = new int[1024];
+        private long[] nullBits = new long[16];
+        private int size = 0;
+
+        void add(String value) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+            if ((size >>> 6) >= nullBits.length) {
+                nullBits = Arrays.copyOf(nullBits, nullBits.length * 2);
+            }
+
+            if (value.isEmpty()) {
+                nullBits[size >>> 6] |= 1L << size;
+                codes[size] = -1;
+            } else {
+                Integer code = codeByValue.get(value);
+                if (code == null) {
+                    code = dictionary.size();
+                    codeByValue.put(value, code);
+                    dictionary.add(value);
+                }
+                codes[size] = code;
+            }
+            size++;
+        }
+
+        // Each distinct value is parsed once; the column takes the narrowest type that
+        // reproduces every value exactly.
+        Column build() {
+            long[] bits = Arrays.copyOf(nullBits, (size >>> 6) + 1);
+
+            double[] numbers = toNumbers();
+            if (numbers != null) {
+                double[] values = new double[size];
+                for (int i = 0; i < size; i++) {
+                    values[i] = codes[i] >= 0 ? numbers[codes[i]] : 0;
+                }
+                return new NumericColumn(size, bits, values);
+            }
+
+            int[] dates = toEpochDays();
+            if (dates != null) {
+                int[] values = new int[size];
+                for (int i = 0; i < size; i++) {
+                    values[i] = codes[i] >= 0 ? dates[codes[i]] : 0;
+                }
+                return new DateColumn(size, bits, values);
+            }
+
+            int[] textCodes = Arrays.copyOf(codes, size);
+            for (int i = 0; i < size; i++) {
+                if (textCodes[i] < 0) textCodes[i] = 0;
+            }
+            return new TextColumn(size, bits, textCodes, dictionary.toArray(new String[0]));
+        }
+
+        private double[] toNumbers() {
+            if (dictionary.isEmpty()) return null;
+            double[] numbers = new double[dictionary.size()];
+            for (int i = 0; i < numbers.length; i++) {
+                String value = dictionary.get(i);
+                char first = value.charAt(0);
+                if (first != '-' && (first < '0' || first > '9')) return null;
+                try {
+                    numbers[i] = Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                if (!formatNumber(numbers[i]).equals(value)) return null;
+            }
+            return numbers;
+        }
+
+        private int[] toEpochDays() {
+            if (dictionary.isEmpty()) return null;
+            int[] days = new int[dictionary.size()];
+            for (int i = 0; i < days.length; i++) {
+                String value = dictionary.get(i);
+                if (!isStrictDate(value)) return null;
+                try {
+                    days[i] = parseStrictDate(value);
+                } catch (DateTimeException e) {
+                    return null;
+                }
+            }
+            return days;
+        }
+    }
+
+    public static class Builder {
+        private final List<String> headers;
+        private final ColumnBuilder[] columnBuilders;
+        private int rowCount = 0;
+
+        public Builder(List<String> headers) {
+            this.headers = new ArrayList<>(headers);
+            this.columnBuilders = new ColumnBuilder[headers.size()];
+            for (int i = 0; i < columnBuilders.length; i++) {
+                columnBuilders[i] = new ColumnBuilder();
+            }
+        }
+
+        public void addRow(List<String> cells) {
+            for (int i = 0; i < columnBuilders.length; i++) {
+                String value = i < cells.size() ? cells.get(i) : "";
+                columnBuilders[i].add(value != null ? value : "");
+            }
+            rowCount++;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public ColumnarDataset build() {
+            Column[] columns = new Column[columnBuilders.length];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = columnBuilders[i].build();
+            }
+            return new ColumnarDataset(headers, columns, rowCount);
+        }
+    }
+}
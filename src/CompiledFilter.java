@@ -0,0 +1,259 @@
+import java.util.Arrays;
+import java.util.List;
+
+// Filter strings parsed once into a predicate tree (see FilterCompiler). Column
+// positions and operator operands are resolved up front so testing a row is just
+// a column read and a comparison. evaluate() answers the same question for a set of
+// candidate rows as a row bitmap: AND/OR are intersections/unions and NOT is a
+// complement, and rows outside the candidates are never looked at.
+public abstract class CompiledFilter {
+
+    public abstract boolean test(List<String> row);
+
+    // The candidate rows that pass this filter
+    public abstract RowBitmap evaluate(ColumnarDataset dataset, RowBitmap candidates);
+
+    public RowBitmap evaluate(ColumnarDataset dataset) {
+        return evaluate(dataset, RowBitmap.full(dataset.getRowCount()));
+    }
+
+    // Canonical key for FilterResultCache, or null when not worth caching
+    public String getCacheKey() {
+        return null;
+    }
+
+    public CompiledFilter[] getChildren() {
+        return new CompiledFilter[0];
+    }
+
+    // True when evaluate() is an index lookup rather than a row scan
+    public boolean isIndexed() {
+        return false;
+    }
+
+    // The same for this dataset's columns, which may also have range indexes
+    public boolean isIndexed(ColumnarDataset dataset) {
+        return isIndexed();
+    }
+
+    static final CompiledFilter MATCH_ALL = new CompiledFilter() {
+        @Override
+        public boolean test(List<String> row) {
+            return true;
+        }
+
+        @Override
+        public RowBitmap evaluate(ColumnarDataset dataset, RowBitmap candidates) {
+            return candidates;
+        }
+    };
+
+    // Unparseable filters and unknown columns never match, even with NOT
+    static final CompiledFilter MATCH_NONE = new CompiledFilter() {
+        @Override
+        public boolean test(List<String> row) {
+            return false;
+        }
+
+        @Override
+        public RowBitmap evaluate(ColumnarDataset dataset, RowBitmap candidates) {
+            return RowBitmap.empty();
+        }
+    };
+
+    static final class And extends CompiledFilter {
+        private final CompiledFilter[] children;
+        private final String cacheKey;
+
+        And(CompiledFilter[] children) {
+            this.children = children;
+            this.cacheKey = groupKey(children, " AND ");
+        }
+
+        @Override
+        public CompiledFilter[] getChildren() {
+            return children.clone();
+        }
+
+        @Override
+        public String getCacheKey() {
+            return cacheKey;
+        }
+
+        @Override
+        public boolean test(List<String> row) {
+            for (CompiledFilter child : children) {
+                if (!child.test(row)) return false;
+            }
+            return true;
+        }
+
+        // Each child only sees the rows that passed the ones before it, so the most
+        // selective and cheapest children go first
+        @Override
+        public RowBitmap evaluate(ColumnarDataset dataset, RowBitmap candidates) {
+            CompiledFilter[] ordered = FilterStatistics.shared().order(children, false, dataset);
+            RowBitmap result = candidates;
+            for (int i = 0; i < ordered.length && !result.isEmpty(); i++) {
+                result = ordered[i].evaluate(dataset, result);
+            }
+            return result;
+        }
+    }
+
+    static final class Or extends CompiledFilter {
+        private final CompiledFilter[] children;
+        private final String cacheKey;
+
+        Or(CompiledFilter[] children) {
+            this.children = children;
+            this.cacheKey = groupKey(children, " OR ");
+        }
+
+        @Override
+        public CompiledFilter[] getChildren() {
+            return children.clone();
+        }
+
+        @Override
+        public String getCacheKey() {
+            return cacheKey;
+        }
+
+        @Override
+        public boolean test(List<String> row) {
+            for (CompiledFilter child : children) {
+                if (child.test(row)) return true;
+            }
+            return false;
+        }
+
+        // Each child only sees the rows none of the ones before it matched, so the least
+        // selective children go first
+        @Override
+        public RowBitmap evaluate(ColumnarDataset dataset, RowBitmap candidates) {
+            CompiledFilter[] ordered = FilterStatistics.shared().order(children, true, dataset);
+            RowBitmap result = RowBitmap.empty();
+            RowBitmap remaining = candidates;
+            for (int i = 0; i < ordered.length && !remaining.isEmpty(); i++) {
+                RowBitmap matches = ordered[i].evaluate(dataset, remaining);
+                result = result.or(matches);
+                remaining = remaining.andNot(matches);
+            }
+            return result;
+        }
+    }
+
+    static final class Not extends CompiledFilter {
+        private final CompiledFilter child;
+        private final String cacheKey;
+
+        Not(CompiledFilter child) {
+            this.child = child;
+            this.cacheKey = child.getCacheKey() != null ? "NOT " + child.getCacheKey() : null;
+        }
+
+        @Override
+        public CompiledFilter[] getChildren() {
+            return new CompiledFilter[]{child};
+        }
+
+        @Override
+        public String getCacheKey() {
+            return cacheKey;
+        }
+
+        @Override
+        public boolean test(List<String> row) {
+            return !child.test(row);
+        }
+
+        @Override
+        public RowBitmap evaluate(ColumnarDataset dataset, RowBitmap candidates) {
+            if (candidates.isEmpty()) return candidates;
+            return candidates.andNot(child.evaluate(dataset, candidates));
+        }
+    }
+
+    // Key of an AND/OR group from its children's keys, in sorted order since evaluation
+    // order does not change the result; null if any child is uncacheable
+    private static String groupKey(CompiledFilter[] children, String separator) {
+        String[] keys = new String[children.length];
+        for (int i = 0; i < children.length; i++) {
+            keys[i] = children[i].getCacheKey();
+            if (keys[i] == null) return null;
+        }
+        Arrays.sort(keys);
+        return "(" + String.join(separator, keys) + ")";
+    }
+
+    // One "[NOT] column Operator [value [value2]]" filter bound to a column index. The
+    // operator itself is a FilterOperations.Operation, shared with Count and TableEditor.
+    static final class Condition extends CompiledFilter {
+        final String cacheKey;
+        final int columnIndex;
+        final boolean negated;
+        private final FilterOperations.Operation operation;
+
+        Condition(String cacheKey, int columnIndex, boolean negated, FilterOperations.Operation operation) {
+            this.cacheKey = cacheKey;
+            this.columnIndex = columnIndex;
+            this.negated = negated;
+            this.operation = operation;
+        }
+
+        @Override
+        public boolean isIndexed() {
+            return operation.isIndexed();
+        }
+
+        @Override
+        public boolean isIndexed(ColumnarDataset dataset) {
+            return columnIndex >= dataset.getColumnCount() || operation.isIndexed(dataset.getColumn(columnIndex));
+        }
+
+        @Override
+        public boolean test(List<String> row) {
+            if (columnIndex >= row.size()) return false;
+
+            boolean result;
+            if (row instanceof ColumnarDataset.RowView) {
+                // Rows backed by the columnar dataset use its pre-parsed typed values
+                ColumnarDataset.RowView view = (ColumnarDataset.RowView) row;
+                result = operation.test(view.getDataset().getColumn(columnIndex), view.getRowIndex());
+            } else {
+                String rowValue = row.get(columnIndex);
+                if (rowValue == null) rowValue = "";
+                result = operation.test(rowValue.trim());
+            }
+            return negated ? !result : result;
+        }
+
+        @Override
+        public RowBitmap evaluate(ColumnarDataset dataset, RowBitmap candidates) {
+            if (columnIndex >= dataset.getColumnCount() || candidates.isEmpty()) return RowBitmap.empty();
+
+            // Index builds are paid once per column and would inflate the first sample
+            ColumnarDataset.Column column = dataset.getColumn(columnIndex);
+            operation.buildIndexes(column);
+
+            long start = System.nanoTime();
+            RowBitmap rows = operation.evaluate(column, candidates);
+            RowBitmap result = negated ? candidates.andNot(rows) : rows;
+
+            FilterStatistics.shared().record(cacheKey, candidates.getCardinality(), result.getCardinality(),
+                    System.nanoTime() - start);
+            return result;
+        }
+
+        @Override
+        public String getCacheKey() {
+            return cacheKey;
+        }
+
+        @Override
+        public String toString() {
+            return cacheKey;
+        }
+    }
+}
@@ -1,26 +1,36 @@
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.scene.control.*;
+import javafx.scene.Scene;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
-import javafx.application.Platform;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
+import javafx.stage.FileChooser;
 import javafx.stage.Popup;
+import javafx.stage.Stage;
 import javafx.geometry.Pos;
 
-import java.text.SimpleDateFormat;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class CountManager {
     private final List<HBox> countSelectors = new ArrayList<>();
     private final VBox countSection;
     private List<String> headers = new ArrayList<>();
     private List<ObservableList<String>> allRows = new ArrayList<>();
+    private ColumnarDataset dataset = ColumnarDataset.empty();
 
     private final String[] OPERATORS = {"Equals", "IsEmpty", "IsFull", "LessThan", "GreaterThan", "LessOrEqual", "GreaterOrEqual", "Has", "Between"};
 
@@ -28,6 +38,9 @@ public class CountManager {
     private Label countResultLabel;
     private ToggleButton orToggleButton;
     private boolean isOrMode = false;
+    private final Map<String, CountQuery> batchQueries = new LinkedHashMap<>();
+    private TextField batchNameField;
+    private Label batchLabel;
 
     public CountManager(VBox countSection) {
         this.countSection = countSection;
@@ -67,13 +80,41 @@ public class CountManager {
         HBox buttonRow = new HBox(10, addSelectorButton, orToggleButton, countButton);
         buttonRow.setAlignment(Pos.CENTER_LEFT);
 
-        countSection.getChildren().addAll(countLabel, buttonRow, countResultLabel);
+        // Named counts saved from the current selectors and run together
+        batchNameField = new TextField();
+        batchNameField.setPromptText("Count name...");
+        Button addToBatchButton = new Button("+ Add to Batch");
+        addToBatchButton.setStyle("-fx-background-color: #8e44ad; -fx-text-fill: white;");
+        addToBatchButton.setOnAction(e -> addToBatch());
+        Button runBatchButton = new Button("▶ Run Batch");
+        runBatchButton.setStyle("-fx-background-color: #3498db; -fx-text-fill: white; -fx-font-weight: bold;");
+        runBatchButton.setOnAction(e -> runBatch());
+        Button clearBatchButton = new Button("Clear Batch");
+        clearBatchButton.setOnAction(e -> {
+            batchQueries.clear();
+            updateBatchLabel();
+        });
+        batchLabel = new Label();
+        batchLabel.setTextFill(Color.WHITE);
+        batchLabel.setFont(Font.font("Verdana", 12));
+        updateBatchLabel();
+
+        HBox batchRow = new HBox(10, batchNameField, addToBatchButton, runBatchButton, clearBatchButton, batchLabel);
+        batchRow.setAlignment(Pos.CENTER_LEFT);
+
+        countSection.getChildren().addAll(countLabel, buttonRow, batchRow, countResultLabel);
         countSection.setStyle("-fx-padding: 10; -fx-background-color: #2c3e50; -fx-background-radius: 5;");
     }
 
-    public void setData(List<String> headers, List<ObservableList<String>> allRows) {
-        this.headers = new ArrayList<>(headers);
-        this.allRows = new ArrayList<>(allRows);
+    public void setData(DatasetHandle datasetHandle) {
+        datasetHandle.addListener(this::refreshFromDataset);
+        refreshFromDataset(datasetHandle);
+    }
+
+    private void refreshFromDataset(DatasetHandle datasetHandle) {
+        this.dataset = datasetHandle.getDataset();
+        this.headers = datasetHandle.getHeaders();
+        this.allRows = datasetHandle.getRows();
     }
 
     public void addCountSelector() {
@@ -115,8 +156,7 @@ public class CountManager {
 
         columnField.textProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal != null && !newVal.trim().isEmpty()) {
-                updateValueSuggestions(newVal.trim(), valueField);
-                updateValueSuggestions(newVal.trim(), valueField2);
+                updateValueSuggestions(newVal.trim(), columnField, valueField, valueField2);
             }
         });
 
@@ -177,225 +217,222 @@ public class CountManager {
         countSection.getChildren().add(insertIndex, pair);
     }
 
-    private void updateValueSuggestions(String columnName, AutoCompleteTextField valueField) {
+    // Values come from the column's cached dictionary instead of a scan of every row
+    private void updateValueSuggestions(String columnName, AutoCompleteTextField columnField,
+                                        AutoCompleteTextField valueField, AutoCompleteTextField valueField2) {
         if (columnName == null || headers.isEmpty() || allRows.isEmpty()) {
             return;
         }
 
-        int columnIndex = -1;
-        for (int i = 0; i < headers.size(); i++) {
-            if (headers.get(i).trim().equalsIgnoreCase(columnName)) {
-                columnIndex = i;
-                break;
-            }
-        }
-
+        ColumnarDataset data = dataset;
+        int columnIndex = FilterCompiler.resolveColumn(data.getHeaders(), columnName);
         if (columnIndex != -1) {
-            Set<String> values = new HashSet<>();
-            final int colIndex = columnIndex;
-
-            allRows.forEach(row -> {
-                if (colIndex < row.size()) {
-                    String value = row.get(colIndex);
-                    if (value != null && !value.trim().isEmpty()) {
-                        values.add(value.trim());
-                    }
+            // The dictionary and its suggestion index are built once per column, off the
+            // FX thread; the value fields suggest nothing until they are ready
+            ColumnarDataset.Column column = data.getColumn(columnIndex);
+            valueField.setItems(Collections.emptyList());
+            valueField2.setItems(Collections.emptyList());
+
+            Task<ColumnDictionary> task = new Task<ColumnDictionary>() {
+                @Override
+                protected ColumnDictionary call() {
+                    ColumnDictionary dictionary = column.getDictionary();
+                    dictionary.getSuggestionIndex();
+                    return dictionary;
                 }
-            });
 
-            List<String> sortedValues = values.stream()
-                    .sorted()
-                    .collect(Collectors.toList());
+                @Override
+                protected void succeeded() {
+                    // Dropped if the selector or the data moved on meanwhile
+                    if (data != dataset || !columnName.equals(columnField.getText().trim())) return;
+                    valueField.setItems(getValue());
+                    valueField2.setItems(getValue());
+                }
+
+                @Override
+                protected void failed() {
+                    System.out.println("Loading value suggestions failed: " + getException());
+                }
+            };
 
-            Platform.runLater(() -> valueField.setItems(sortedValues));
+            Thread thread = new Thread(task, "value-suggestions");
+            thread.setDaemon(true);
+            thread.start();
         }
     }
 
+    // The selectors are read once here; the count itself runs off the FX thread
     private void performCount() {
-        long count = countMatchingRows();
-        countResultLabel.setText("Count: " + count + " rows");
-    }
-
-    public long countMatchingRows() {
-        return allRows.stream().filter(this::rowMatchesSelectors).count();
-    }
-
-    private boolean rowMatchesSelectors(ObservableList<String> row) {
-        if (countSelectors.isEmpty()) {
-            return true;
-        }
+        CountQuery query = snapshotQuery();
+        ColumnarDataset data = dataset;
+        countResultLabel.setText("Counting...");
+        countButton.setDisable(true);
+
+        Task<Long> countTask = new Task<Long>() {
+            @Override
+            protected Long call() {
+                return query.count(data);
+            }
 
-        if (isOrMode) {
-            for (HBox pair : countSelectors) {
-                if (evaluateCondition(row, pair)) {
-                    return true;
-                }
+            @Override
+            protected void succeeded() {
+                countButton.setDisable(false);
+                countResultLabel.setText("Count: " + getValue() + " rows");
             }
-            return false;
-        } else {
-            for (HBox pair : countSelectors) {
-                if (!evaluateCondition(row, pair)) {
-                    return false;
+
+            @Override
+            protected void failed() {
+                countButton.setDisable(false);
+                countResultLabel.setText("Count failed");
+                if (getException() != null) {
+                    getException().printStackTrace();
                 }
             }
-            return true;
-        }
-    }
-
-    private boolean evaluateCondition(ObservableList<String> row, HBox pair) {
-        AutoCompleteTextField columnField = (AutoCompleteTextField) pair.getChildren().get(0);
-        AutoCompleteTextField operatorField = (AutoCompleteTextField) pair.getChildren().get(1);
-        AutoCompleteTextField valueField = (AutoCompleteTextField) pair.getChildren().get(2);
-        AutoCompleteTextField valueField2 = (AutoCompleteTextField) pair.getChildren().get(4);
-        CheckBox notCheckBox = (CheckBox) pair.getChildren().get(5);
-
-        String column = columnField.getText();
-        String operator = operatorField.getText();
+        };
 
-        if (column == null || operator == null || column.trim().isEmpty() || operator.trim().isEmpty()) {
-            return true;
-        }
+        Thread thread = new Thread(countTask, "count");
+        thread.setDaemon(true);
+        thread.start();
+    }
 
-        column = column.trim();
-        operator = operator.trim();
+    public long countMatchingRows() {
+        return snapshotQuery().count(dataset);
+    }
 
-        int colIndex = -1;
-        for (int i = 0; i < headers.size(); i++) {
-            if (headers.get(i).trim().equalsIgnoreCase(column)) {
-                colIndex = i;
-                break;
+    private void addToBatch() {
+        String name = batchNameField.getText().trim();
+        if (name.isEmpty()) {
+            int number = batchQueries.size() + 1;
+            while (batchQueries.containsKey("Count " + number)) {
+                number++;
             }
+            name = "Count " + number;
+        } else if (batchQueries.containsKey(name)) {
+            // Replacing it would silently drop the earlier definition
+            Alert alert = new Alert(Alert.AlertType.ERROR, "The batch already has a count named '" + name + "'.");
+            alert.showAndWait();
+            return;
         }
-
-        if (colIndex == -1 || colIndex >= row.size()) {
-            return false;
-        }
-
-        String rowValue = row.get(colIndex);
-        if (rowValue == null) rowValue = "";
-        rowValue = rowValue.trim();
-
-        String filterValue = valueField.getText();
-        String filterValue2 = valueField2.getText();
-
-        if (filterValue == null) filterValue = "";
-        filterValue = filterValue.trim();
-
-        if (filterValue2 == null) filterValue2 = "";
-        filterValue2 = filterValue2.trim();
-
-        boolean result = applyOperator(rowValue, filterValue, filterValue2, operator);
-
-        if (notCheckBox.isSelected()) {
-            result = !result;
-        }
-
-        return result;
+        batchQueries.put(name, snapshotQuery());
+        batchNameField.clear();
+        updateBatchLabel();
+        System.out.println("Added batch count '" + name + "'");
     }
 
-    private boolean applyOperator(String rowValue, String filterValue, String filterValue2, String operator) {
-        switch (operator) {
-            case "IsEmpty":
-                return rowValue.isEmpty();
+    private void updateBatchLabel() {
+        batchLabel.setText("Batch: " + batchQueries.size() + " counts");
+    }
 
-            case "IsFull":
-                return !rowValue.isEmpty();
+    private void runBatch() {
+        if (batchQueries.isEmpty()) return;
 
-            case "Equals":
-                if (filterValue.equalsIgnoreCase("null") || filterValue.isEmpty()) {
-                    return rowValue.isEmpty();
-                } else {
-                    return rowValue.equals(filterValue);
-                }
+        Map<String, CountQuery> queries = new LinkedHashMap<>(batchQueries);
+        ColumnarDataset data = dataset;
+        countResultLabel.setText("Counting " + queries.size() + " definitions...");
 
-            case "Has":
-                return rowValue.toLowerCase().contains(filterValue.toLowerCase());
+        Task<Map<String, Long>> batchTask = new Task<Map<String, Long>>() {
+            @Override
+            protected Map<String, Long> call() {
+                return BatchCount.countAll(queries, data);
+            }
 
-            case "Between":
-                return betweenComparison(rowValue, filterValue, filterValue2);
+            @Override
+            protected void succeeded() {
+                countResultLabel.setText("Batch: " + getValue().size() + " counts done");
+                showBatchResults(getValue());
+            }
 
-            case "LessThan":
-            case "LessOrEqual":
-            case "GreaterThan":
-            case "GreaterOrEqual":
-                return compareValues(rowValue, filterValue, operator);
+            @Override
+            protected void failed() {
+                countResultLabel.setText("Batch count failed");
+                if (getException() != null) {
+                    getException().printStackTrace();
+                }
+            }
+        };
 
-            default:
-                return rowValue.equals(filterValue);
-        }
+        Thread thread = new Thread(batchTask, "batch-count");
+        thread.setDaemon(true);
+        thread.start();
     }
 
-    private boolean betweenComparison(String rowValue, String fromValue, String toValue) {
-        if (fromValue.isEmpty() || toValue.isEmpty()) {
-            return false;
-        }
+    private void showBatchResults(Map<String, Long> counts) {
+        TableView<ObservableList<String>> table = new TableView<>();
+        TableColumn<ObservableList<String>, String> nameColumn = new TableColumn<>("Count");
+        nameColumn.setCellValueFactory(param -> CellValue.of(param.getValue(), 0));
+        nameColumn.setPrefWidth(250);
+        TableColumn<ObservableList<String>, String> valueColumn = new TableColumn<>("Rows");
+        valueColumn.setCellValueFactory(param -> CellValue.of(param.getValue(), 1));
+        valueColumn.setPrefWidth(120);
+        table.getColumns().add(nameColumn);
+        table.getColumns().add(valueColumn);
+        counts.forEach((name, count) -> table.getItems().add(FXCollections.observableArrayList(name, String.valueOf(count))));
+
+        Stage stage = new Stage();
+        stage.setTitle("Batch Count Results");
+
+        Button exportButton = new Button("Export");
+        exportButton.setOnAction(e -> exportBatchResults(counts, stage));
+
+        VBox box = new VBox(10, table, exportButton);
+        box.setStyle("-fx-padding: 10; -fx-background-color: #2c3e50;");
+        VBox.setVgrow(table, Priority.ALWAYS);
+        stage.setScene(new Scene(box, 420, 500));
+        stage.show();
+    }
 
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-            sdf.setLenient(false);
-            Date rowDate = sdf.parse(rowValue);
-            Date fromDate = sdf.parse(fromValue);
-            Date toDate = sdf.parse(toValue);
-
-            return (rowDate.equals(fromDate) || rowDate.after(fromDate)) &&
-                    (rowDate.equals(toDate) || rowDate.before(toDate));
-        } catch (Exception dateEx) {
-            try {
-                double rowNum = Double.parseDouble(rowValue);
-                double fromNum = Double.parseDouble(fromValue);
-                double toNum = Double.parseDouble(toValue);
-
-                return rowNum >= fromNum && rowNum <= toNum;
-            } catch (Exception numEx) {
-                return rowValue.compareToIgnoreCase(fromValue) >= 0 &&
-                        rowValue.compareToIgnoreCase(toValue) <= 0;
+    private void exportBatchResults(Map<String, Long> counts, Stage owner) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save Batch Counts");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Excel Files", "*.xlsx"));
+        fileChooser.setInitialFileName("XED_Counts.xlsx");
+        File file = fileChooser.showSaveDialog(owner);
+        if (file == null) return;
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); FileOutputStream out = new FileOutputStream(file)) {
+            Sheet sheet = workbook.createSheet("Counts");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Count");
+            header.createCell(1).setCellValue("Rows");
+
+            int rowIndex = 1;
+            for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                Row row = sheet.createRow(rowIndex++);
+                row.createCell(0).setCellValue(entry.getKey());
+                row.createCell(1).setCellValue(entry.getValue());
             }
+            sheet.autoSizeColumn(0);
+            sheet.autoSizeColumn(1);
+            workbook.write(out);
+            System.out.println("Exported " + counts.size() + " batch counts to " + file.getAbsolutePath());
+        } catch (IOException ex) {
+            Alert alert = new Alert(Alert.AlertType.ERROR, "Failed to export counts: " + ex.getMessage());
+            alert.showAndWait();
         }
     }
 
-    private boolean compareValues(String rowValue, String filterValue, String operator) {
-        if (filterValue.isEmpty()) {
-            return false;
-        }
-
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-            sdf.setLenient(false);
-            Date rowDate = sdf.parse(rowValue);
-            Date filterDate = sdf.parse(filterValue);
-
-            switch (operator) {
-                case "LessThan": return rowDate.before(filterDate);
-                case "LessOrEqual": return rowDate.before(filterDate) || rowDate.equals(filterDate);
-                case "GreaterThan": return rowDate.after(filterDate);
-                case "GreaterOrEqual": return rowDate.after(filterDate) || rowDate.equals(filterDate);
-            }
-        } catch (Exception dateEx) {
-            try {
-                double rowNum = Double.parseDouble(rowValue);
-                double compareNum = Double.parseDouble(filterValue);
-
-                switch (operator) {
-                    case "LessThan": return rowNum < compareNum;
-                    case "LessOrEqual": return rowNum <= compareNum;
-                    case "GreaterThan": return rowNum > compareNum;
-                    case "GreaterOrEqual": return rowNum >= compareNum;
-                }
-            } catch (Exception numEx) {
-                int comparison = rowValue.compareToIgnoreCase(filterValue);
-                switch (operator) {
-                    case "LessThan": return comparison < 0;
-                    case "LessOrEqual": return comparison <= 0;
-                    case "GreaterThan": return comparison > 0;
-                    case "GreaterOrEqual": return comparison >= 0;
-                }
-            }
+    // Immutable copy of the current selectors and AND/OR mode
+    public CountQuery snapshotQuery() {
+        List<CountQuery.Condition> conditions = new ArrayList<>();
+        for (HBox pair : countSelectors) {
+            AutoCompleteTextField columnField = (AutoCompleteTextField) pair.getChildren().get(0);
+            AutoCompleteTextField operatorField = (AutoCompleteTextField) pair.getChildren().get(1);
+            AutoCompleteTextField valueField = (AutoCompleteTextField) pair.getChildren().get(2);
+            AutoCompleteTextField valueField2 = (AutoCompleteTextField) pair.getChildren().get(4);
+            CheckBox notCheckBox = (CheckBox) pair.getChildren().get(5);
+
+            conditions.add(new CountQuery.Condition(columnField.getText(), operatorField.getText(),
+                    valueField.getText(), valueField2.getText(), notCheckBox.isSelected()));
         }
-        return false;
+        return new CountQuery(conditions, isOrMode);
     }
 
     public static class AutoCompleteTextField extends TextField {
         private List<String> items = new ArrayList<>();
+        // Built on the first keystroke after setItems
+        private SuggestionIndex suggestionIndex;
+        // Set for a column's values, to show how many rows hold each suggestion
+        private ColumnDictionary dictionary;
         private Popup popup;
         private ListView<String> listView;
         private boolean isPopupShowing = false;
@@ -429,7 +466,7 @@ public class CountManager {
                             setText(null);
                             setStyle("");
                         } else {
-                            setText(item);
+                            setText(suggestionText(item));
                             setStyle(
                                     "-fx-background-color: transparent;" +
                                             "-fx-text-fill: black;" +
@@ -525,35 +562,14 @@ public class CountManager {
                 return;
             }
 
-            String searchText = input.toLowerCase().trim();
-            List<String> filteredItems = items.stream()
-                    .filter(item -> item.toLowerCase().contains(searchText))
-                    .collect(Collectors.toList());
-
-            filteredItems.sort((a, b) -> {
-                String aLower = a.toLowerCase();
-                String bLower = b.toLowerCase();
-
-                boolean aExact = aLower.equals(searchText);
-                boolean bExact = bLower.equals(searchText);
-                if (aExact && !bExact) return -1;
-                if (!aExact && bExact) return 1;
-
-                boolean aStarts = aLower.startsWith(searchText);
-                boolean bStarts = bLower.startsWith(searchText);
-                if (aStarts && !bStarts) return -1;
-                if (!aStarts && bStarts) return 1;
-
-                return a.compareToIgnoreCase(b);
-            });
+            if (suggestionIndex == null) {
+                suggestionIndex = SuggestionIndex.of(items);
+            }
+            List<String> filteredItems = suggestionIndex.suggest(input.toLowerCase().trim(), 10);
 
             if (filteredItems.isEmpty()) {
                 hidePopup();
             } else {
-                if (filteredItems.size() > 10) {
-                    filteredItems = filteredItems.subList(0, 10);
-                }
-
                 listView.setItems(FXCollections.observableArrayList(filteredItems));
                 listView.getSelectionModel().clearSelection();
                 showPopup();
@@ -590,8 +606,23 @@ public class CountManager {
             }
         }
 
+        // Only ever read, so a shared column dictionary is kept without a copy
         public void setItems(List<String> items) {
-            this.items = new ArrayList<>(items);
+            this.items = items;
+            this.suggestionIndex = null;
+            this.dictionary = null;
+        }
+
+        // A column's values, sharing the suggestion index kept with its dictionary
+        public void setItems(ColumnDictionary dictionary) {
+            this.items = dictionary.getValues();
+            this.suggestionIndex = dictionary.getSuggestionIndex();
+            this.dictionary = dictionary;
+        }
+
+        private String suggestionText(String item) {
+            int position = dictionary != null ? dictionary.indexOf(item) : -1;
+            return position >= 0 ? item + "  (" + dictionary.getCount(position) + ")" : item;
         }
     }
 
@@ -0,0 +1,130 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Immutable snapshot of the Count selectors, taken once per click on the FX thread so
+// the evaluation never reads a widget. Each condition becomes a row bitmap (index
+// lookup or one parallel column scan, shared through FilterResultCache) and the count
+// is the cardinality of their intersection or union.
+public final class CountQuery {
+    private final List<Condition> conditions;
+    private final boolean orMode;
+
+    public CountQuery(List<Condition> conditions, boolean orMode) {
+        this.conditions = Collections.unmodifiableList(new ArrayList<>(conditions));
+        this.orMode = orMode;
+    }
+
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+
+    public boolean isOrMode() {
+        return orMode;
+    }
+
+    public long count(ColumnarDataset data) {
+        return matchingRows(data).getCardinality();
+    }
+
+    public RowBitmap matchingRows(ColumnarDataset data) {
+        if (conditions.isEmpty()) {
+            return RowBitmap.full(data.getRowCount());
+        }
+
+        RowBitmap result = null;
+        for (Condition condition : conditions) {
+            RowBitmap rows = condition.rows(data);
+            if (result == null) {
+                result = rows;
+            } else {
+                result = orMode ? result.or(rows) : result.and(rows);
+            }
+        }
+        return result;
+    }
+
+    // One selector: column and operator as typed, values trimmed. Count compares with
+    // the text fallback of FilterOperations.Operation.
+    public static final class Condition {
+        private final String column;
+        private final String operator;
+        private final String value;
+        private final String value2;
+        private final FilterOperations.Operation operation;
+        private final boolean negated;
+
+        public Condition(String column, String operator, String value, String value2, boolean negated) {
+            this.column = column != null ? column.trim() : "";
+            this.operator = operator != null ? operator.trim() : "";
+            this.value = value != null ? value.trim() : "";
+            this.value2 = value2 != null ? value2.trim() : "";
+            this.operation = FilterOperations.Operation.of(this.operator, this.value, this.value2, true);
+            this.negated = negated;
+        }
+
+        // A blank selector matches every row, an unknown column none
+        public boolean isBlank() {
+            return column.isEmpty() || operator.isEmpty();
+        }
+
+        // Cache key in the given dataset, or null for blank selectors and unknown columns
+        public String getKey(ColumnarDataset data) {
+            if (isBlank()) return null;
+
+            int columnIndex = FilterCompiler.resolveColumn(data.getHeaders(), column);
+            if (columnIndex == -1) return null;
+            return FilterCompiler.canonicalKey(negated, columnIndex, operator, value, value2, true);
+        }
+
+        public RowBitmap rows(ColumnarDataset data) {
+            int rowCount = data.getRowCount();
+            if (isBlank()) {
+                return RowBitmap.full(rowCount);
+            }
+
+            int columnIndex = FilterCompiler.resolveColumn(data.getHeaders(), column);
+            if (columnIndex == -1) {
+                return RowBitmap.empty();
+            }
+
+            ColumnarDataset.Column columnData = data.getColumn(columnIndex);
+            return FilterResultCache.shared().getOrCompute(data, getKey(data), () -> {
+                RowBitmap rows = operation.evaluate(columnData, RowBitmap.full(rowCount));
+                return negated ? rows.complement(rowCount) : rows;
+            });
+        }
+
+        // Rows answered by the column's indexes (values, or sorted keys for typed ranges);
+        // null for the conditions that have to scan the column with matches()
+        RowBitmap indexedRows(ColumnarDataset.Column columnData, int rowCount) {
+            if (!operation.isIndexed(columnData)) return null;
+            return operation.evaluate(columnData, RowBitmap.full(rowCount));
+        }
+
+        String getColumn() {
+            return column;
+        }
+
+        boolean isNegated() {
+            return negated;
+        }
+
+        // The un-negated condition for one cell
+        boolean matches(ColumnarDataset.Column column, int row) {
+            return operation.test(column, row);
+        }
+
+        @Override
+        public String toString() {
+            String text = (negated ? "NOT " : "") + column + " " + operator;
+            if (operator.equals("Between")) {
+                return text + " " + value + " " + value2;
+            }
+            if (operator.equals("IsEmpty") || operator.equals("IsFull")) {
+                return text;
+            }
+            return text + " " + value;
+        }
+    }
+}
@@ -88,9 +88,19 @@ public class CrosstabData {
         return grandTotal;
     }
 
-    public void setData(List<String> headers, List<ObservableList<String>> allRows) {
-        this.headers = headers != null ? new ArrayList<>(headers) : new ArrayList<>();
-        this.allRows = allRows != null ? new ArrayList<>(allRows) : new ArrayList<>();
+    public void setData(DatasetHandle datasetHandle) {
+        if (datasetHandle == null) {
+            this.headers = new ArrayList<>();
+            this.allRows = new ArrayList<>();
+            return;
+        }
+        datasetHandle.addListener(this::refreshFromDataset);
+        refreshFromDataset(datasetHandle);
+    }
+
+    private void refreshFromDataset(DatasetHandle datasetHandle) {
+        this.headers = datasetHandle.getHeaders();
+        this.allRows = datasetHandle.getRows();
     }
 
     public void setFilterManager(FilterManager filterManager) {
@@ -149,19 +159,9 @@ public class CrosstabData {
             System.out.println("Applying filters in crosstab generation...");
             System.out.println("FilterManager has " + filterManager.getActiveFilters().size() + " active filters");
 
+            // Comes from the cached per-filter bitmaps, so no second pass over every row
             dataToProcess = filterManager.getFilteredRows();
 
-            if (dataToProcess.size() == allRows.size() && filterManager.hasActiveFilters()) {
-                System.out.println("Using direct filtering approach...");
-                dataToProcess = allRows.stream()
-                        .filter(row -> {
-                            if (row == null) return false;
-                            boolean matches = filterManager.rowMatchesFilters(row, headers);
-                            return matches;
-                        })
-                        .collect(Collectors.toList());
-            }
-
             System.out.println("Filtered data: " + dataToProcess.size() + " rows (from " + allRows.size() + " total)");
         }
 
@@ -1,4 +1,3 @@
-import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.control.*;
@@ -83,12 +82,7 @@ public class CrosstabTable {
             }
 
             TableColumn<ObservableList<String>, String> firstColumn = new TableColumn<>(currentXColumn);
-            firstColumn.setCellValueFactory(param -> {
-                if (param.getValue() != null && !param.getValue().isEmpty()) {
-                    return new SimpleStringProperty(param.getValue().get(0));
-                }
-                return new SimpleStringProperty("");
-            });
+            firstColumn.setCellValueFactory(param -> CellValue.of(param.getValue(), 0));
             firstColumn.setPrefWidth(150);
             styleTableColumn(firstColumn);
             tableView.getColumns().add(firstColumn);
@@ -99,11 +93,7 @@ public class CrosstabTable {
                 final int colIndex = i + 1;
                 column.setCellValueFactory(param -> {
                     ObservableList<String> row = param.getValue();
-                    if (row != null && colIndex < row.size()) {
-                        return new SimpleStringProperty(row.get(colIndex));
-                    } else {
-                        return new SimpleStringProperty("0");
-                    }
+                    return CellValue.of(row != null && colIndex < row.size() ? row.get(colIndex) : "0");
                 });
                 column.setPrefWidth(100);
                 styleTableColumn(column);
@@ -115,11 +105,7 @@ public class CrosstabTable {
             final int totalColIndex = sortedYValues.size() + 1;
             totalColumn.setCellValueFactory(param -> {
                 ObservableList<String> row = param.getValue();
-                if (row != null && totalColIndex < row.size()) {
-                    return new SimpleStringProperty(row.get(totalColIndex));
-                } else {
-                    return new SimpleStringProperty("0");
-                }
+                return CellValue.of(row != null && totalColIndex < row.size() ? row.get(totalColIndex) : "0");
             });
             totalColumn.setPrefWidth(100);
             styleTotalColumn(totalColumn);
@@ -131,11 +117,7 @@ public class CrosstabTable {
                 final int xCumColIndex = sortedYValues.size() + 2;
                 xCumulativeColumn.setCellValueFactory(param -> {
                     ObservableList<String> row = param.getValue();
-                    if (row != null && xCumColIndex < row.size()) {
-                        return new SimpleStringProperty(row.get(xCumColIndex));
-                    } else {
-                        return new SimpleStringProperty("0");
-                    }
+                    return CellValue.of(row != null && xCumColIndex < row.size() ? row.get(xCumColIndex) : "0");
                 });
                 xCumulativeColumn.setPrefWidth(150);
                 styleCumulativeColumn(xCumulativeColumn);
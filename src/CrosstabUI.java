@@ -610,11 +610,16 @@ public class CrosstabUI {
         }
     }
 
-    public void setData(List<String> headers, List<ObservableList<String>> allRows) {
-        this.headers = headers;
-        this.allRows = allRows;
-
-        crosstabData.setData(headers, allRows);
+    public void setData(DatasetHandle datasetHandle) {
+        this.headers = datasetHandle.getHeaders();
+        this.allRows = datasetHandle.getRows();
+
+        crosstabData.setData(datasetHandle);
+        datasetHandle.addListener(handle -> {
+            this.headers = handle.getHeaders();
+            this.allRows = handle.getRows();
+            refreshUI();
+        });
 
         originalItems = FXCollections.observableArrayList(headers);
 
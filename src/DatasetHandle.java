@@ -0,0 +1,55 @@
+import javafx.collections.ObservableList;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// The one shared reference to the loaded data. Managers keep this handle instead of
+// their own copies of headers/rows and re-read it when a change is announced.
+// The version is that of the current dataset snapshot, unique across handles, so it
+// can key caches safely.
+public class DatasetHandle {
+    private volatile ColumnarDataset dataset;
+    private final List<Consumer<DatasetHandle>> listeners = new CopyOnWriteArrayList<>();
+
+    public DatasetHandle(ColumnarDataset dataset) {
+        this.dataset = dataset != null ? dataset : ColumnarDataset.empty();
+    }
+
+    public ColumnarDataset getDataset() {
+        return dataset;
+    }
+
+    public long getVersion() {
+        return dataset.getVersion();
+    }
+
+    public List<String> getHeaders() {
+        return dataset.getHeaders();
+    }
+
+    public List<ObservableList<String>> getRows() {
+        return dataset.getRows();
+    }
+
+    public int getRowCount() {
+        return dataset.getRowCount();
+    }
+
+    public void addColumn(String columnName, List<String> values) {
+        synchronized (this) {
+            dataset = dataset.withColumn(columnName, values);
+        }
+        for (Consumer<DatasetHandle> listener : listeners) {
+            listener.accept(this);
+        }
+    }
+
+    public void addListener(Consumer<DatasetHandle> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<DatasetHandle> listener) {
+        listeners.remove(listener);
+    }
+}
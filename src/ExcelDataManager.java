@@ -1,16 +1,55 @@
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.MissingRecordAwareHSSFListener;
+import org.apache.poi.hssf.eventusermodel.dummyrecord.LastCellOfRowDummyRecord;
+import org.apache.poi.hssf.record.*;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 public class ExcelDataManager {
+    public enum LoadMode {
+        WORKBOOK,   // full XSSFWorkbook usermodel, whole sheet held in memory
+        STREAMING   // SAX over the sheet XML, one row in memory at a time
+    }
+
     private List<String> headers = new ArrayList<>();
-    private List<ObservableList<String>> allRows = new ArrayList<>();
+    private DatasetHandle datasetHandle = new DatasetHandle(ColumnarDataset.empty());
+    private ColumnarDataset.Builder rowBuilder;
+    private LoadMode loadMode = LoadMode.STREAMING;
+
+    public void setLoadMode(LoadMode loadMode) {
+        this.loadMode = loadMode != null ? loadMode : LoadMode.STREAMING;
+    }
+
+    public LoadMode getLoadMode() {
+        return loadMode;
+    }
 
     public void loadExcelFile(File file) throws Exception {
         if (file == null || !file.exists()) {
@@ -21,8 +60,18 @@ public class ExcelDataManager {
             throw new Exception("File must be an Excel file (.xlsx or .xls)");
         }
 
-        headers.clear();
-        allRows.clear();
+        clearData();
+
+        // Legacy BIFF workbooks always go through the HSSF event model, whatever their extension
+        if (FileMagic.valueOf(file) == FileMagic.OLE2) {
+            loadXlsFileStreaming(file);
+            return;
+        }
+
+        if (loadMode == LoadMode.STREAMING) {
+            loadExcelFileStreaming(file);
+            return;
+        }
 
         try (FileInputStream fis = new FileInputStream(file);
              Workbook workbook = new XSSFWorkbook(fis)) {
@@ -65,6 +114,7 @@ public class ExcelDataManager {
                     }
 
                     headers.addAll(rowData);
+                    rowBuilder = new ColumnarDataset.Builder(headers);
                     isFirstRow = false;
                 } else {
                     // Process data rows
@@ -86,7 +136,7 @@ public class ExcelDataManager {
                         rowData.remove(rowData.size() - 1);
                     }
 
-                    allRows.add(rowData);
+                    rowBuilder.addRow(rowData);
                     processedRows++;
                 }
             }
@@ -94,14 +144,14 @@ public class ExcelDataManager {
             if (headers.isEmpty()) {
                 throw new Exception("No headers found in Excel file");
             }
+            finishLoad();
 
             System.out.println("Loaded Excel file: " + file.getName() +
                     " - Headers: " + headers.size() +
                     ", Data rows: " + processedRows);
 
         } catch (Exception e) {
-            headers.clear();
-            allRows.clear();
+            clearData();
             throw new Exception("Failed to load Excel file: " + e.getMessage(), e);
         }
     }
@@ -161,16 +211,449 @@ public class ExcelDataManager {
         }
     }
 
+    private void loadExcelFileStreaming(File file) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            SharedStrings sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+            boolean date1904 = isDate1904(reader);
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new Exception("Excel file contains no sheets");
+            }
+
+            try (InputStream sheetStream = sheets.next()) {
+                if (sheetStream == null) {
+                    throw new Exception("Could not read the first sheet");
+                }
+
+                StreamingSheetHandler handler = new StreamingSheetHandler(sharedStrings, styles, date1904);
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(handler);
+                parser.parse(new InputSource(sheetStream));
+
+                if (handler.failure != null) {
+                    throw handler.failure;
+                }
+            }
+
+            if (headers.isEmpty()) {
+                throw new Exception("No headers found in Excel file");
+            }
+            finishLoad();
+
+            System.out.println("Loaded Excel file (streaming): " + file.getName() +
+                    " - Headers: " + headers.size() +
+                    ", Data rows: " + datasetHandle.getRowCount());
+
+        } catch (Exception e) {
+            clearData();
+            throw new Exception("Failed to load Excel file: " + e.getMessage(), e);
+        }
+    }
+
+    private void loadXlsFileStreaming(File file) throws Exception {
+        try (POIFSFileSystem fs = new POIFSFileSystem(file, true)) {
+            XlsSheetListener listener = new XlsSheetListener();
+            FormatTrackingHSSFListener formatListener =
+                    new FormatTrackingHSSFListener(new MissingRecordAwareHSSFListener(listener));
+            listener.formatListener = formatListener;
+
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(formatListener);
+            new HSSFEventFactory().processWorkbookEvents(request, fs);
+
+            if (listener.failure != null) {
+                throw listener.failure;
+            }
+            if (listener.sheetIndex < 0) {
+                throw new Exception("Excel file contains no sheets");
+            }
+            listener.flushRow();
+
+            if (headers.isEmpty()) {
+                throw new Exception("No headers found in Excel file");
+            }
+            finishLoad();
+
+            System.out.println("Loaded Excel file (HSSF events): " + file.getName() +
+                    " - Headers: " + headers.size() +
+                    ", Data rows: " + datasetHandle.getRowCount());
+
+        } catch (Exception e) {
+            clearData();
+            throw new Exception("Failed to load Excel file: " + e.getMessage(), e);
+        }
+    }
+
+    private class XlsSheetListener implements HSSFListener {
+        private FormatTrackingHSSFListener formatListener;
+        private SSTRecord sharedStrings;
+        private boolean date1904 = false;
+
+        private int sheetIndex = -1;
+        private boolean inFirstSheet = false;
+        private int currentRow = -1;
+        private int pendingStringColumn = -1;
+        private final List<String> rowCells = new ArrayList<>();
+
+        Exception failure;
+
+        @Override
+        public void processRecord(org.apache.poi.hssf.record.Record record) {
+            if (failure != null) return;
+
+            try {
+                switch (record.getSid()) {
+                    case BOFRecord.sid:
+                        if (((BOFRecord) record).getType() == BOFRecord.TYPE_WORKSHEET) {
+                            sheetIndex++;
+                            inFirstSheet = sheetIndex == 0;
+                        }
+                        return;
+                    case EOFRecord.sid:
+                        if (inFirstSheet) {
+                            flushRow();
+                            inFirstSheet = false;
+                        }
+                        return;
+                    case SSTRecord.sid:
+                        sharedStrings = (SSTRecord) record;
+                        return;
+                    case DateWindow1904Record.sid:
+                        date1904 = ((DateWindow1904Record) record).getWindowing() == 1;
+                        return;
+                    default:
+                        break;
+                }
+
+                if (!inFirstSheet) return;
+
+                if (record instanceof LastCellOfRowDummyRecord) {
+                    flushRow();
+                    return;
+                }
+
+                switch (record.getSid()) {
+                    case LabelSSTRecord.sid:
+                        LabelSSTRecord labelSst = (LabelSSTRecord) record;
+                        String sstValue = sharedStrings != null
+                                ? sharedStrings.getString(labelSst.getSSTIndex()).getString() : "";
+                        setCell(labelSst, sstValue != null ? sstValue.trim() : "");
+                        break;
+                    case LabelRecord.sid:
+                        LabelRecord label = (LabelRecord) record;
+                        setCell(label, label.getValue() != null ? label.getValue().trim() : "");
+                        break;
+                    case NumberRecord.sid:
+                        NumberRecord number = (NumberRecord) record;
+                        setCell(number, formatNumericValue(number.getValue(),
+                                formatListener.getFormatIndex(number), formatListener.getFormatString(number), date1904));
+                        break;
+                    case FormulaRecord.sid:
+                        FormulaRecord formula = (FormulaRecord) record;
+                        switch (formula.getCachedResultTypeEnum()) {
+                            case STRING:
+                                // The cached text arrives in the following StringRecord
+                                setCell(formula, "");
+                                pendingStringColumn = formula.getColumn();
+                                break;
+                            case NUMERIC:
+                                setCell(formula, formatNumericValue(formula.getValue(),
+                                        formatListener.getFormatIndex(formula), formatListener.getFormatString(formula), date1904));
+                                break;
+                            case BOOLEAN:
+                                setCell(formula, String.valueOf(formula.getCachedBooleanValue()));
+                                break;
+                            default:
+                                setCell(formula, "");
+                                break;
+                        }
+                        break;
+                    case StringRecord.sid:
+                        if (pendingStringColumn >= 0) {
+                            String formulaText = ((StringRecord) record).getString();
+                            rowCells.set(pendingStringColumn, formulaText != null ? formulaText.trim() : "");
+                            pendingStringColumn = -1;
+                        }
+                        break;
+                    case BoolErrRecord.sid:
+                        BoolErrRecord boolErr = (BoolErrRecord) record;
+                        setCell(boolErr, boolErr.isBoolean() ? String.valueOf(boolErr.getBooleanValue()) : "");
+                        break;
+                    case BlankRecord.sid:
+                        setCell((BlankRecord) record, "");
+                        break;
+                    default:
+                        break;
+                }
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+
+        private void setCell(CellValueRecordInterface cell, String value) throws Exception {
+            if (cell.getRow() != currentRow) {
+                flushRow();
+                currentRow = cell.getRow();
+            }
+            int column = cell.getColumn();
+            while (rowCells.size() <= column) {
+                rowCells.add("");
+            }
+            rowCells.set(column, value);
+        }
+
+        private void flushRow() throws Exception {
+            if (currentRow >= 0) {
+                acceptStreamedRow(rowCells);
+            }
+            rowCells.clear();
+            currentRow = -1;
+            pendingStringColumn = -1;
+        }
+    }
+
+    private boolean isDate1904(XSSFReader reader) {
+        final boolean[] date1904 = {false};
+        try (InputStream workbookStream = reader.getWorkbookData()) {
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    if ("workbookPr".equals(localName)) {
+                        String value = attributes.getValue("date1904");
+                        date1904[0] = "1".equals(value) || "true".equalsIgnoreCase(value);
+                    }
+                }
+            });
+            parser.parse(new InputSource(workbookStream));
+        } catch (Exception e) {
+            System.err.println("Could not read workbook properties: " + e.getMessage());
+        }
+        return date1904[0];
+    }
+
+    // Same header/data row rules as the workbook path above, fed one row at a time
+    // by the event-based readers. cells holds the values for columns 0..lastCellNum-1.
+    private void acceptStreamedRow(List<String> cells) throws Exception {
+        boolean isFirstRow = headers.isEmpty();
+
+        boolean empty = true;
+        for (String cellValue : cells) {
+            if (!cellValue.trim().isEmpty()) {
+                empty = false;
+                break;
+            }
+        }
+        if (empty && !isFirstRow) {
+            return;
+        }
+
+        if (isFirstRow) {
+            List<String> rowData = new ArrayList<>();
+            int lastCellNum = cells.isEmpty() ? -1 : cells.size();
+            for (int i = 0; i <= lastCellNum; i++) {
+                String cellValue = i < cells.size() ? cells.get(i) : "";
+                if (cellValue.trim().isEmpty()) {
+                    cellValue = "Column " + (i + 1); // Default header name
+                }
+                rowData.add(cellValue);
+            }
+
+            if (rowData.isEmpty()) {
+                throw new Exception("Header row is empty");
+            }
+
+            headers.addAll(rowData);
+            rowBuilder = new ColumnarDataset.Builder(headers);
+        } else {
+            rowBuilder.addRow(cells);
+        }
+    }
+
+    private String formatNumericValue(double numValue, int formatIndex, String formatString, boolean date1904) {
+        if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(numValue)) {
+            try {
+                SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
+                return sdf.format(DateUtil.getJavaDate(numValue, date1904));
+            } catch (Exception e) {
+                return "DATE_ERROR";
+            }
+        }
+        // Check if it's a whole number
+        if (numValue == Math.floor(numValue) && !Double.isInfinite(numValue)) {
+            return String.valueOf((long) numValue);
+        } else {
+            return String.valueOf(numValue);
+        }
+    }
+
+    private class StreamingSheetHandler extends DefaultHandler {
+        private final SharedStrings sharedStrings;
+        private final StylesTable styles;
+        private final boolean date1904;
+
+        private final List<String> rowCells = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+        private boolean collectingText = false;
+
+        private int cellColumn;
+        private String cellType;
+        private String cellStyle;
+        private String cellValue;
+        private String inlineValue;
+
+        Exception failure;
+
+        StreamingSheetHandler(SharedStrings sharedStrings, StylesTable styles, boolean date1904) {
+            this.sharedStrings = sharedStrings;
+            this.styles = styles;
+            this.date1904 = date1904;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    rowCells.clear();
+                    break;
+                case "c":
+                    String reference = attributes.getValue("r");
+                    cellColumn = reference != null ? new CellReference(reference).getCol() : rowCells.size();
+                    cellType = attributes.getValue("t");
+                    cellStyle = attributes.getValue("s");
+                    cellValue = null;
+                    inlineValue = null;
+                    break;
+                case "v":
+                case "t":
+                    text.setLength(0);
+                    collectingText = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collectingText) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (failure != null) return;
+
+            switch (localName) {
+                case "v":
+                    cellValue = text.toString();
+                    collectingText = false;
+                    break;
+                case "t":
+                    // Rich inline strings are split across several <t> runs
+                    inlineValue = inlineValue == null ? text.toString() : inlineValue + text;
+                    collectingText = false;
+                    break;
+                case "c":
+                    while (rowCells.size() < cellColumn) {
+                        rowCells.add("");
+                    }
+                    String value = extractStreamedCellValue();
+                    if (cellColumn < rowCells.size()) {
+                        rowCells.set(cellColumn, value);
+                    } else {
+                        rowCells.add(value);
+                    }
+                    break;
+                case "row":
+                    try {
+                        acceptStreamedRow(rowCells);
+                    } catch (Exception e) {
+                        failure = e;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private String extractStreamedCellValue() {
+            try {
+                if ("inlineStr".equals(cellType)) {
+                    return inlineValue != null ? inlineValue.trim() : "";
+                }
+                if (cellValue == null || cellValue.isEmpty()) {
+                    return "";
+                }
+
+                if (cellType == null || "n".equals(cellType)) {
+                    int formatIndex = 0;
+                    String formatString = null;
+                    if (cellStyle != null && !cellStyle.isEmpty()) {
+                        XSSFCellStyle style = styles.getStyleAt(Integer.parseInt(cellStyle));
+                        if (style != null) {
+                            formatIndex = style.getDataFormat();
+                            formatString = style.getDataFormatString();
+                        }
+                    }
+                    return formatNumericValue(Double.parseDouble(cellValue), formatIndex, formatString, date1904);
+                }
+
+                switch (cellType) {
+                    case "s":
+                        String stringValue = sharedStrings.getItemAt(Integer.parseInt(cellValue)).getString();
+                        return stringValue != null ? stringValue.trim() : "";
+                    case "str":
+                        return cellValue.trim();
+                    case "b":
+                        return String.valueOf("1".equals(cellValue));
+                    default:
+                        // Error cells ("e") and anything unknown read as blank, like the workbook path
+                        return "";
+                }
+            } catch (Exception ex) {
+                System.err.println("Error extracting cell value: " + ex.getMessage());
+                return "ERROR";
+            }
+        }
+    }
+
     public List<String> getHeaders() {
         return headers != null ? new ArrayList<>(headers) : new ArrayList<>();
     }
 
+    // Read-only row views; callers share them rather than copying
     public List<ObservableList<String>> getAllRows() {
-        return allRows != null ? new ArrayList<>(allRows) : new ArrayList<>();
+        return datasetHandle.getRows();
+    }
+
+    public ColumnarDataset getDataset() {
+        return datasetHandle.getDataset();
     }
+
+    public DatasetHandle getDatasetHandle() {
+        return datasetHandle;
+    }
+
     public String getDataInfo() {
         return "Headers: " + (headers != null ? headers.size() : 0) +
-                ", Rows: " + (allRows != null ? allRows.size() : 0);
+                ", Rows: " + datasetHandle.getRowCount();
+    }
+
+    private void finishLoad() {
+        ColumnarDataset dataset = rowBuilder != null ? rowBuilder.build() : new ColumnarDataset.Builder(headers).build();
+        datasetHandle = new DatasetHandle(dataset);
+        rowBuilder = null;
+    }
+
+    private void clearData() {
+        headers.clear();
+        rowBuilder = null;
+        datasetHandle = new DatasetHandle(ColumnarDataset.empty());
     }
 
     private boolean isRowEmpty(Row row) {
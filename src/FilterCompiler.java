@@ -0,0 +1,141 @@
+import java.util.List;
+
+// Turns the FilterManager filter strings into a CompiledFilter tree. Parsing and
+// column lookup happen here once per filter set instead of once per row. Filters
+// starting with "(" (other than a column header) are nested expressions, see
+// FilterExpression.
+public class FilterCompiler {
+    public static final String[] OPERATORS = {"Equals", "IsEmpty", "IsFull", "LessThan", "GreaterThan", "LessOrEqual", "GreaterOrEqual", "Has", "Between"};
+
+    public static CompiledFilter compile(List<String> filters, boolean orMode, List<String> headers) {
+        if (filters.isEmpty()) {
+            return CompiledFilter.MATCH_ALL;
+        }
+
+        CompiledFilter[] children = new CompiledFilter[filters.size()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = compileFilter(filters.get(i), headers);
+        }
+
+        if (children.length == 1) {
+            return children[0];
+        }
+
+        // Row-at-a-time tests short-circuit in this order
+        children = FilterStatistics.shared().order(children, orMode, null);
+        return orMode ? new CompiledFilter.Or(children) : new CompiledFilter.And(children);
+    }
+
+    // A single filter string: either one condition or a parenthesized expression.
+    // Expressions with syntax errors never match, like unparseable conditions.
+    public static CompiledFilter compileFilter(String filter, List<String> headers) {
+        if (FilterExpression.isExpression(filter, headers)) {
+            try {
+                return FilterExpression.compile(filter, headers);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Invalid filter expression '" + filter + "': " + e.getMessage());
+                return CompiledFilter.MATCH_NONE;
+            }
+        }
+        return compileCondition(filter, headers);
+    }
+
+    static CompiledFilter compileCondition(String filter, List<String> headers) {
+        boolean isNot = false;
+        String actualFilter = filter;
+
+        if (filter.startsWith("NOT ")) {
+            isNot = true;
+            actualFilter = filter.substring(4);
+        }
+
+        String operator = null;
+        int operatorIndex = -1;
+
+        for (String op : OPERATORS) {
+            int index = actualFilter.indexOf(" " + op + " ");
+            if (index != -1) {
+                operator = op;
+                operatorIndex = index;
+                break;
+            }
+            if (actualFilter.endsWith(" " + op)) {
+                operator = op;
+                operatorIndex = actualFilter.length() - op.length() - 1;
+                break;
+            }
+        }
+
+        if (operator == null) return CompiledFilter.MATCH_NONE;
+
+        String columnName = actualFilter.substring(0, operatorIndex).trim();
+        String filterValue = "";
+        String filterValue2 = "";
+
+        if (!operator.equals("IsEmpty") && !operator.equals("IsFull")) {
+            if (operatorIndex + operator.length() + 2 < actualFilter.length()) {
+                String remainingValue = actualFilter.substring(operatorIndex + operator.length() + 2).trim();
+
+                if (operator.equals("Between")) {
+                    String[] values = remainingValue.split(" ", 2);
+                    if (values.length >= 2) {
+                        filterValue = values[0].trim();
+                        filterValue2 = values[1].trim();
+                    }
+                } else {
+                    filterValue = remainingValue;
+                }
+            }
+        }
+
+        int columnIndex = resolveColumn(headers, columnName);
+        if (columnIndex == -1) return CompiledFilter.MATCH_NONE;
+
+        String key = canonicalKey(isNot, columnIndex, operator, filterValue, filterValue2, false);
+        return new CompiledFilter.Condition(key, columnIndex, isNot,
+                FilterOperations.Operation.of(operator, filterValue, filterValue2, false));
+    }
+
+    // Cache key for one condition. Spellings that must match the same rows map to the
+    // same key: the column is its resolved index, Equals null/empty is IsEmpty and Has
+    // ignores case. textFallback marks CountManager's compare/between semantics, which
+    // fall back to text order when values are neither dates nor numbers.
+    public static String canonicalKey(boolean negated, int columnIndex, String operator,
+                                      String value, String value2, boolean textFallback) {
+        switch (operator) {
+            case "IsEmpty":
+            case "IsFull":
+                value = "";
+                value2 = "";
+                break;
+            case "Equals":
+                if (value.equalsIgnoreCase("null") || value.isEmpty()) {
+                    operator = "IsEmpty";
+                    value = "";
+                }
+                value2 = "";
+                break;
+            case "Has":
+                value = value.toLowerCase();
+                value2 = "";
+                break;
+            case "Between":
+                break;
+            default:
+                value2 = "";
+        }
+
+        boolean fallbackApplies = textFallback && (operator.equals("Between") || TypedValues.Comparison.fromOperator(operator) != null);
+        return (negated ? "NOT " : "") + "#" + columnIndex + " " + operator + (fallbackApplies ? "/text" : "")
+                + "\u001f" + value + "\u001f" + value2;
+    }
+
+    static int resolveColumn(List<String> headers, String columnName) {
+        for (int i = 0; i < headers.size(); i++) {
+            if (headers.get(i).trim().equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
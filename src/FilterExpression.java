@@ -0,0 +1,200 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Parenthesized filter expressions such as
+//     (Age GreaterThan 30 AND City Equals Paris) OR NOT (Name Has test)
+// AND binds tighter than OR, and NOT in front of a group or a quoted leaf negates it.
+// Leaves are ordinary filter strings, written as-is or in double quotes when the
+// value itself contains parentheses or a standalone AND/OR. A filter string is only
+// read as an expression when it starts with "(" or "NOT (" and that parenthesis does
+// not begin a column header such as "(Total)", so every existing filter keeps its
+// meaning.
+public final class FilterExpression {
+    private final String text;
+    private final List<String> headers;
+    private final boolean strict;
+    private final List<Token> tokens = new ArrayList<>();
+    private int position;
+
+    private FilterExpression(String text, List<String> headers, boolean strict) {
+        this.text = text;
+        this.headers = headers;
+        this.strict = strict;
+    }
+
+    public static boolean isExpression(String filter, List<String> headers) {
+        String trimmed = filter.trim();
+        String rest = trimmed.startsWith("NOT (") ? trimmed.substring(4) : trimmed;
+        return rest.startsWith("(") && headerLengthAt(rest, 0, headers) == -1;
+    }
+
+    // Length of the "("-prefixed header followed by a space at offset of text, or -1
+    private static int headerLengthAt(String text, int offset, List<String> headers) {
+        for (String header : headers) {
+            String name = header.trim();
+            if (name.startsWith("(") && text.regionMatches(true, offset, name, 0, name.length())
+                    && offset + name.length() < text.length()
+                    && Character.isWhitespace(text.charAt(offset + name.length()))) {
+                return name.length();
+            }
+        }
+        return -1;
+    }
+
+    // Throws IllegalArgumentException with the offending position on a syntax error.
+    // Leaves naming an unknown column or no operator compile to MATCH_NONE.
+    public static CompiledFilter compile(String expression, List<String> headers) {
+        return parse(expression, headers, false);
+    }
+
+    private static CompiledFilter parse(String expression, List<String> headers, boolean strict) {
+        FilterExpression parser = new FilterExpression(expression, headers, strict);
+        parser.tokenize();
+        CompiledFilter filter = parser.parseOr();
+        if (parser.position < parser.tokens.size()) {
+            throw parser.error("Unexpected '" + parser.peek().text + "'");
+        }
+        return filter;
+    }
+
+    // Null when the expression parses and every leaf names one of the headers and an
+    // operator, otherwise the reason it does not
+    public static String validate(String expression, List<String> headers) {
+        try {
+            parse(expression, headers, true);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static final class Token {
+        private final String text;
+        private final int start;
+        private final boolean quoted;
+
+        Token(String text, int start, boolean quoted) {
+            this.text = text;
+            this.start = start;
+            this.quoted = quoted;
+        }
+
+        boolean is(String word) {
+            return !quoted && text.equals(word);
+        }
+    }
+
+    private void tokenize() {
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if ((c == '(' || c == ')') && headerLengthAt(text, i, headers) == -1) {
+                tokens.add(new Token(String.valueOf(c), i, false));
+                i++;
+            } else if (c == '"') {
+                int end = text.indexOf('"', i + 1);
+                if (end == -1) {
+                    throw new IllegalArgumentException("Unclosed quote at position " + (i + 1));
+                }
+                tokens.add(new Token(text.substring(i + 1, end), i, true));
+                i = end + 1;
+            } else {
+                int start = i;
+                if (c == '(') {
+                    i += headerLengthAt(text, i, headers); // a "(Total)" header starts this leaf
+                }
+                while (i < text.length() && !Character.isWhitespace(text.charAt(i))
+                        && text.charAt(i) != '(' && text.charAt(i) != ')') {
+                    i++;
+                }
+                tokens.add(new Token(text.substring(start, i), start, false));
+            }
+        }
+    }
+
+    private CompiledFilter parseOr() {
+        List<CompiledFilter> children = new ArrayList<>();
+        children.add(parseAnd());
+        while (peek() != null && peek().is("OR")) {
+            position++;
+            children.add(parseAnd());
+        }
+        return children.size() == 1 ? children.get(0) : new CompiledFilter.Or(children.toArray(new CompiledFilter[0]));
+    }
+
+    private CompiledFilter parseAnd() {
+        List<CompiledFilter> children = new ArrayList<>();
+        children.add(parseUnary());
+        while (peek() != null && peek().is("AND")) {
+            position++;
+            children.add(parseUnary());
+        }
+        return children.size() == 1 ? children.get(0) : new CompiledFilter.And(children.toArray(new CompiledFilter[0]));
+    }
+
+    private CompiledFilter parseUnary() {
+        Token token = peek();
+        if (token == null) {
+            throw error("Expression ends where a filter was expected");
+        }
+
+        // "NOT column ..." stays part of the leaf so it compiles to a negated condition
+        if (token.is("NOT") && position + 1 < tokens.size()
+                && (tokens.get(position + 1).is("(") || tokens.get(position + 1).quoted)) {
+            position++;
+            return new CompiledFilter.Not(parseUnary());
+        }
+
+        if (token.is("(")) {
+            position++;
+            CompiledFilter inner = parseOr();
+            if (peek() == null || !peek().is(")")) {
+                throw error("Missing ')'");
+            }
+            position++;
+            return inner;
+        }
+
+        if (token.quoted) {
+            position++;
+            return compileLeaf(token.text.trim(), token.start);
+        }
+        return parseLeaf();
+    }
+
+    // Words up to the next AND, OR or parenthesis, taken verbatim from the source text
+    private CompiledFilter parseLeaf() {
+        int first = position;
+        while (position < tokens.size()) {
+            Token token = tokens.get(position);
+            if (token.quoted || token.is("AND") || token.is("OR") || token.is("(") || token.is(")")) break;
+            position++;
+        }
+        if (position == first) {
+            throw error("Unexpected '" + peek().text + "'");
+        }
+
+        Token last = tokens.get(position - 1);
+        String leaf = text.substring(tokens.get(first).start, last.start + last.text.length());
+        return compileLeaf(leaf, tokens.get(first).start);
+    }
+
+    private CompiledFilter compileLeaf(String leaf, int start) {
+        CompiledFilter filter = FilterCompiler.compileCondition(leaf, headers);
+        if (strict && filter == CompiledFilter.MATCH_NONE) {
+            throw new IllegalArgumentException("Unknown column or operator in '" + leaf + "' at position " + (start + 1));
+        }
+        return filter;
+    }
+
+    private Token peek() {
+        return position < tokens.size() ? tokens.get(position) : null;
+    }
+
+    private IllegalArgumentException error(String message) {
+        int at = position < tokens.size() ? tokens.get(position).start : text.length();
+        return new IllegalArgumentException(message + " at position " + (at + 1));
+    }
+}
@@ -1,5 +1,7 @@
+import javafx.animation.PauseTransition;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
@@ -9,16 +11,24 @@ import javafx.geometry.Pos;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseEvent;
 import javafx.stage.Popup;
-import java.text.SimpleDateFormat;
+import javafx.util.Duration;
 import java.util.*;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.function.BooleanSupplier;
 
 public class FilterManager {
-    private final String[] OPERATORS = {"Equals", "IsEmpty", "IsFull", "LessThan", "GreaterThan", "LessOrEqual", "GreaterOrEqual", "Has", "Between"};
+    private final String[] OPERATORS = FilterCompiler.OPERATORS;
     private List<String> activeFilters = new ArrayList<>();
+    private CompiledFilter compiledFilter;
+    private List<String> compiledHeaders;
+    private RowBitmap matchingRows;
+    private ColumnarDataset matchingDataset;
+    private long filterGeneration;
+    // Typing in the column filter or clicking through several filters only refilters
+    // the table once the edits pause
+    private final PauseTransition filterDebounce = new PauseTransition(Duration.millis(200));
     private List<String> headers = new ArrayList<>();
     private List<ObservableList<String>> allRows = new ArrayList<>();
+    private DatasetHandle datasetHandle;
     private TableViewController tableController;
 
     private TextField columnFilterField;
@@ -29,6 +39,7 @@ public class FilterManager {
     private TextField valueField2;
     private Label andLabel;
     private ToggleButton orToggleButton;
+    private TextField expressionField;
     private CheckBox notCheckBox;
     private boolean isOrMode = false;
 
@@ -40,21 +51,126 @@ public class FilterManager {
 
     private Set<String> currentColumnValues = new HashSet<>();
     private List<String> allColumnValues = new ArrayList<>();
+    private Task<ColumnDictionary> suggestionTask;
     private List<String> allHeaders = new ArrayList<>();
     private List<String> allOperators = new ArrayList<>();
 
     public FilterManager() {
         initializeUIComponents();
+        filterDebounce.setOnFinished(e -> runColumnAndRowFilters());
     }
 
     public List<ObservableList<String>> getFilteredRows() {
-        if (activeFilters.isEmpty()) {
+        if (activeFilters.isEmpty() || datasetHandle == null) {
             return new ArrayList<>(allRows);
         }
 
-        return allRows.stream()
-                .filter(row -> rowMatchesFilters(row, headers))
-                .collect(Collectors.toList());
+        ColumnarDataset dataset = datasetHandle.getDataset();
+        List<ObservableList<String>> datasetRows = dataset.getRows();
+        RowBitmap matches = getMatchingRows(dataset);
+
+        List<ObservableList<String>> filteredRows = new ArrayList<>(matches.getCardinality());
+        matches.forEach(row -> filteredRows.add(datasetRows.get(row)));
+        return filteredRows;
+    }
+
+    // Rows of the dataset passing the active filters, kept until the filters change
+    public RowBitmap getMatchingRows() {
+        ColumnarDataset dataset = datasetHandle != null ? datasetHandle.getDataset() : ColumnarDataset.empty();
+        return getMatchingRows(dataset);
+    }
+
+    public RowBitmap getMatchingRows(ColumnarDataset dataset) {
+        return getMatchingRows(dataset, () -> false);
+    }
+
+    // Called from the table's background filter thread as well, so the lock only guards
+    // taking a snapshot of the filters and storing the result, not the evaluation. Once
+    // cancelled is set the evaluation stops with a CancellationException and nothing
+    // partial is kept.
+    public RowBitmap getMatchingRows(ColumnarDataset dataset, BooleanSupplier cancelled) {
+        List<String> filters;
+        boolean orMode;
+        long generation;
+        synchronized (this) {
+            if (matchingRows != null && matchingDataset == dataset) {
+                return matchingRows;
+            }
+            filters = new ArrayList<>(activeFilters);
+            orMode = isOrMode;
+            generation = filterGeneration;
+        }
+
+        RowBitmap rows = evaluateFilters(filters, orMode, dataset, cancelled);
+        synchronized (this) {
+            if (generation == filterGeneration) {
+                matchingRows = rows;
+                matchingDataset = dataset;
+            }
+        }
+        return rows;
+    }
+
+    // Every filter is evaluated only on rows it has not seen yet. In AND mode a filter
+    // gets the rows still matching the ones before it, in OR mode the rows none of them
+    // matched, so adding a filter only looks at the previous result. Per-filter results
+    // live in the shared FilterResultCache, so removing a filter, toggling one back on or
+    // loading a preset with overlapping filters reuses what is already known. The order
+    // comes from FilterStatistics rather than the order the filters were added in, except
+    // that a filter needing a scan never goes ahead of filters with cached results.
+    private RowBitmap evaluateFilters(List<String> filterStrings, boolean orMode, ColumnarDataset dataset,
+                                      BooleanSupplier cancelled) {
+        if (filterStrings.isEmpty()) {
+            return RowBitmap.full(dataset.getRowCount());
+        }
+
+        CompiledFilter[] filters = new CompiledFilter[filterStrings.size()];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = FilterCompiler.compileFilter(filterStrings.get(i), dataset.getHeaders());
+        }
+        filters = cachedFirst(FilterStatistics.shared().order(filters, orMode, dataset), dataset);
+
+        RowBitmap allDatasetRows = RowBitmap.full(dataset.getRowCount());
+        if (orMode) {
+            RowBitmap result = RowBitmap.empty();
+            RowBitmap remaining = allDatasetRows;
+            for (CompiledFilter filter : filters) {
+                RowBitmap matches = filterResult(dataset, filter, remaining, cancelled);
+                result = result.or(matches);
+                remaining = remaining.andNot(matches);
+            }
+            return result;
+        }
+
+        RowBitmap result = allDatasetRows;
+        for (CompiledFilter filter : filters) {
+            result = filterResult(dataset, filter, result, cancelled);
+        }
+        return result;
+    }
+
+    // Filters with cached results keep their places ahead of new scanned ones, which
+    // then only see the rows left by them. New index lookups may go anywhere: placed
+    // first they only narrow the rows the cached filters get, and those are reused.
+    private static CompiledFilter[] cachedFirst(CompiledFilter[] filters, ColumnarDataset dataset) {
+        List<CompiledFilter> first = new ArrayList<>(filters.length);
+        List<CompiledFilter> scanned = new ArrayList<>();
+        for (CompiledFilter filter : filters) {
+            if (FilterResultCache.shared().contains(dataset, filter.getCacheKey()) || filter.isIndexed(dataset)) {
+                first.add(filter);
+            } else {
+                scanned.add(filter);
+            }
+        }
+        first.addAll(scanned);
+        return first.toArray(new CompiledFilter[0]);
+    }
+
+    // Checked before every filter, and by the row scans inside it for every chunk
+    private RowBitmap filterResult(ColumnarDataset dataset, CompiledFilter filter, RowBitmap rows,
+                                   BooleanSupplier cancelled) {
+        return ParallelRowScan.withCancellation(cancelled,
+                () -> FilterResultCache.shared().evaluate(dataset, filter.getCacheKey(), filter, rows));
     }
 
     private void initializeUIComponents() {
@@ -65,8 +181,9 @@ public class FilterManager {
         columnFilterField.setStyle("-fx-background-color: linear-gradient(to right, #ffffff, #ff4444); -fx-text-fill: black; -fx-border-color: #cc0000; -fx-border-width: 2px; -fx-font-size: 14px; -fx-padding: 8;");
         columnFilterField.textProperty().addListener((observable, oldValue, newValue) -> {
             System.out.println("Column filter changed: '" + oldValue + "' -> '" + newValue + "'");
+            // Column visibility only; the filtered rows stay as they are
             if (tableController != null) {
-                applyColumnAndRowFilters();
+                tableController.applyColumnFilter(newValue.trim());
             }
         });
 
@@ -103,6 +220,12 @@ public class FilterManager {
         Button addFilterButton = new Button("Add Filter");
         Button clearFiltersButton = new Button("Clear All");
 
+        expressionField = new TextField();
+        expressionField.setPromptText("(Column Equals a AND Column2 Has b) OR NOT (Column3 IsEmpty)");
+        expressionField.setPrefWidth(420);
+        expressionField.setStyle(textFieldStyle);
+        Button addExpressionButton = new Button("Add Expression");
+
         valueField2Custom.setVisible(false);
         valueField2Custom.setManaged(false);
         andLabel.setVisible(false);
@@ -157,7 +280,10 @@ public class FilterManager {
         });
 
         orToggleButton.setOnAction(e -> {
-            isOrMode = orToggleButton.isSelected();
+            synchronized (this) {
+                isOrMode = orToggleButton.isSelected();
+            }
+            invalidateCompiledFilter();
             if (isOrMode) {
                 orToggleButton.setText("OR");
                 orToggleButton.setStyle("-fx-background-color: #e67e22; -fx-text-fill: white; -fx-font-size: 12px; -fx-padding: 5 10;");
@@ -205,6 +331,27 @@ public class FilterManager {
             }
         });
 
+        addExpressionButton.setOnAction(e -> {
+            String expression = expressionField.getText().trim();
+            if (expression.isEmpty()) return;
+
+            List<String> currentHeaders = datasetHandle != null ? datasetHandle.getHeaders() : headers;
+            if (!FilterExpression.isExpression(expression, currentHeaders)) {
+                expression = "(" + expression + ")";
+            }
+            String error = FilterExpression.validate(expression, currentHeaders);
+            if (error != null) {
+                showAlert("Error", "Invalid filter expression: " + error);
+                return;
+            }
+
+            addFilter(expression);
+            refreshActiveFiltersDisplay();
+            applyColumnAndRowFilters();
+            expressionField.clear();
+        });
+        expressionField.setOnAction(e -> addExpressionButton.fire());
+
         clearFiltersButton.setOnAction(e -> {
             clearAllFilters();
             refreshActiveFiltersDisplay();
@@ -214,7 +361,7 @@ public class FilterManager {
         
         HBox firstRow = new HBox(10, columnField, operatorField, valueField, andLabel, valueField2Custom, notCheckBox, addFilterButton);
         firstRow.setAlignment(Pos.CENTER_LEFT);
-        HBox secondRow = new HBox(10, orToggleButton, clearFiltersButton);
+        HBox secondRow = new HBox(10, orToggleButton, clearFiltersButton, expressionField, addExpressionButton);
         secondRow.setAlignment(Pos.CENTER_LEFT);
 
         filterControlsBox = new VBox(5, firstRow, secondRow);
@@ -236,39 +383,48 @@ public class FilterManager {
         operatorField.setItems(allOperators);
     }
 
+    // Values come from the column's cached dictionary instead of a scan of every row
     private void updateAutoCompleteValues(String columnName) {
-        if (columnName == null || headers.isEmpty() || allRows.isEmpty()) {
+        if (columnName == null || headers.isEmpty() || allRows.isEmpty() || datasetHandle == null) {
             return;
         }
 
-        int columnIndex = -1;
-        for (int i = 0; i < headers.size(); i++) {
-            if (headers.get(i).trim().equalsIgnoreCase(columnName)) {
-                columnIndex = i;
-                break;
-            }
-        }
-
+        ColumnarDataset dataset = datasetHandle.getDataset();
+        int columnIndex = FilterCompiler.resolveColumn(dataset.getHeaders(), columnName);
         if (columnIndex != -1) {
-            Set<String> values = new HashSet<>();
-            final int colIndex = columnIndex;
-
-            allRows.forEach(row -> {
-                if (colIndex < row.size()) {
-                    String value = row.get(colIndex);
-                    if (value != null && !value.trim().isEmpty()) {
-                        values.add(value.trim());
-                    }
+            // The dictionary and its suggestion index are built once per column, off the
+            // FX thread; the value fields suggest nothing until they are ready
+            ColumnarDataset.Column column = dataset.getColumn(columnIndex);
+            valueField.setItems(Collections.emptyList());
+            valueField2Custom.setItems(Collections.emptyList());
+
+            Task<ColumnDictionary> task = new Task<ColumnDictionary>() {
+                @Override
+                protected ColumnDictionary call() {
+                    ColumnDictionary dictionary = column.getDictionary();
+                    dictionary.getSuggestionIndex();
+                    return dictionary;
                 }
-            });
 
-            List<String> sortedValues = values.stream()
-                    .sorted()
-                    .collect(Collectors.toList());
+                @Override
+                protected void succeeded() {
+                    if (suggestionTask != this) return;
+                    suggestionTask = null;
+                    allColumnValues = getValue().getValues();
+                    valueField.setItems(getValue());
+                    valueField2Custom.setItems(getValue());
+                }
 
-            allColumnValues = sortedValues;
-            valueField.setItems(sortedValues);
-            valueField2Custom.setItems(sortedValues);
+                @Override
+                protected void failed() {
+                    System.out.println("Loading value suggestions failed: " + getException());
+                }
+            };
+            suggestionTask = task;
+
+            Thread thread = new Thread(task, "value-suggestions");
+            thread.setDaemon(true);
+            thread.start();
         }
     }
 
@@ -281,30 +437,42 @@ public class FilterManager {
     }
 
     private void applyColumnAndRowFilters() {
+        filterDebounce.playFromStart();
+    }
+
+    private void runColumnAndRowFilters() {
         if (tableController == null) {
             System.out.println("TableController is null, cannot apply filters");
             return;
         }
 
         String columnInput = columnFilterField.getText().trim();
-        Predicate<ObservableList<String>> rowFilter = row -> rowMatchesFilters(row, headers);
 
         System.out.println("Applying filters with column input: '" + columnInput + "' and " + activeFilters.size() + " row filters (Mode: " + (isOrMode ? "OR" : "AND") + ")");
-        tableController.applyFilters(columnInput, rowFilter);
+        tableController.applyFilters(columnInput, this::getMatchingRows);
     }
 
-    public void setData(List<String> headers, List<ObservableList<String>> allRows) {
-        this.headers = new ArrayList<>(headers);
-        this.allRows = new ArrayList<>(allRows);
-        this.allHeaders = new ArrayList<>(headers);
+    public void setData(DatasetHandle datasetHandle) {
+        this.datasetHandle = datasetHandle;
+        // A new sheet: selectivities measured on the old one's columns no longer apply
+        FilterStatistics.shared().clear();
+        datasetHandle.addListener(handle -> refreshFromDataset());
+        refreshFromDataset();
 
         System.out.println("FilterManager.setData() called with " + headers.size() + " headers and " + allRows.size() + " rows");
 
-        
-        columnField.setItems(headers);
         operatorField.setItems(allOperators);
     }
 
+    private void refreshFromDataset() {
+        this.headers = datasetHandle.getHeaders();
+        this.allRows = datasetHandle.getRows();
+        this.allHeaders = headers;
+        invalidateCompiledFilter();
+
+        columnField.setItems(headers);
+    }
+
     public void setTableController(TableViewController tableController) {
         this.tableController = tableController;
         System.out.println("TableController set in FilterManager");
@@ -318,6 +486,10 @@ public class FilterManager {
     
     public static class AutoCompleteTextField extends TextField {
         private List<String> items = new ArrayList<>();
+        // Built on the first keystroke after setItems
+        private SuggestionIndex suggestionIndex;
+        // Set for a column's values, to show how many rows hold each suggestion
+        private ColumnDictionary dictionary;
         private Popup popup;
         private ListView<String> listView;
         private boolean isPopupShowing = false;
@@ -352,7 +524,7 @@ public class FilterManager {
                             setText(null);
                             setStyle("");
                         } else {
-                            setText(item);
+                            setText(suggestionText(item));
                             setStyle(
                                     "-fx-background-color: transparent;" +
                                             "-fx-text-fill: black;" +
@@ -449,37 +621,14 @@ public class FilterManager {
                 return;
             }
 
-            String searchText = input.toLowerCase().trim();
-            List<String> filteredItems = items.stream()
-                    .filter(item -> item.toLowerCase().contains(searchText))
-                    .collect(Collectors.toList());
-
-            
-            filteredItems.sort((a, b) -> {
-                String aLower = a.toLowerCase();
-                String bLower = b.toLowerCase();
-
-                boolean aExact = aLower.equals(searchText);
-                boolean bExact = bLower.equals(searchText);
-                if (aExact && !bExact) return -1;
-                if (!aExact && bExact) return 1;
-
-                boolean aStarts = aLower.startsWith(searchText);
-                boolean bStarts = bLower.startsWith(searchText);
-                if (aStarts && !bStarts) return -1;
-                if (!aStarts && bStarts) return 1;
-
-                return a.compareToIgnoreCase(b);
-            });
+            if (suggestionIndex == null) {
+                suggestionIndex = SuggestionIndex.of(items);
+            }
+            List<String> filteredItems = suggestionIndex.suggest(input.toLowerCase().trim(), 10);
 
             if (filteredItems.isEmpty()) {
                 hidePopup();
             } else {
-                
-                if (filteredItems.size() > 10) {
-                    filteredItems = filteredItems.subList(0, 10);
-                }
-
                 listView.setItems(FXCollections.observableArrayList(filteredItems));
                 listView.getSelectionModel().clearSelection();
                 showPopup();
@@ -517,30 +666,48 @@ public class FilterManager {
             }
         }
 
+        // Only ever read, so a shared column dictionary is kept without a copy
         public void setItems(List<String> items) {
-            this.items = new ArrayList<>(items);
+            this.items = items;
+            this.suggestionIndex = null;
+            this.dictionary = null;
+        }
+
+        // A column's values, sharing the suggestion index kept with its dictionary
+        public void setItems(ColumnDictionary dictionary) {
+            this.items = dictionary.getValues();
+            this.suggestionIndex = dictionary.getSuggestionIndex();
+            this.dictionary = dictionary;
+        }
+
+        private String suggestionText(String item) {
+            int position = dictionary != null ? dictionary.indexOf(item) : -1;
+            return position >= 0 ? item + "  (" + dictionary.getCount(position) + ")" : item;
         }
     }
 
     
-    public void addFilter(String filter) {
+    public synchronized void addFilter(String filter) {
         if (!activeFilters.contains(filter)) {
             activeFilters.add(filter);
+            invalidateCompiledFilter();
             System.out.println("Added filter: " + filter);
         }
     }
 
-    public void removeFilter(String filter) {
+    public synchronized void removeFilter(String filter) {
         activeFilters.remove(filter);
+        invalidateCompiledFilter();
         System.out.println("Removed filter: " + filter);
     }
 
-    public void clearAllFilters() {
+    public synchronized void clearAllFilters() {
         activeFilters.clear();
+        invalidateCompiledFilter();
         System.out.println("Cleared all filters");
     }
 
-    public List<String> getActiveFilters() {
+    public synchronized List<String> getActiveFilters() {
         return new ArrayList<>(activeFilters);
     }
 
@@ -566,8 +733,7 @@ public class FilterManager {
             }
 
             filterButton.setOnAction(e -> {
-                String textToRemove = ((Button) e.getSource()).getText();
-                activeFilters.removeIf(f -> f.equals(textToRemove));
+                removeFilter(((Button) e.getSource()).getText());
                 refreshActiveFiltersDisplay();
                 applyColumnAndRowFilters();
             });
@@ -587,174 +753,29 @@ public class FilterManager {
             return true;
         }
 
-        if (isOrMode) {
-            for (String filter : activeFilters) {
-                if (matchesSingleFilter(row, filter, headers)) {
-                    return true;
-                }
-            }
-            return false;
-        } else {
-            for (String filter : activeFilters) {
-                if (!matchesSingleFilter(row, filter, headers)) {
-                    return false;
-                }
-            }
-            return true;
-        }
-    }
-
-    private boolean matchesSingleFilter(ObservableList<String> row, String filter, List<String> headers) {
-        boolean isNot = false;
-        String actualFilter = filter;
-
-        if (filter.startsWith("NOT ")) {
-            isNot = true;
-            actualFilter = filter.substring(4);
-        }
-
-        String operator = null;
-        int operatorIndex = -1;
-
-        for (String op : OPERATORS) {
-            int index = actualFilter.indexOf(" " + op + " ");
-            if (index != -1) {
-                operator = op;
-                operatorIndex = index;
-                break;
-            }
-            if (actualFilter.endsWith(" " + op)) {
-                operator = op;
-                operatorIndex = actualFilter.length() - op.length() - 1;
-                break;
-            }
-        }
-
-        if (operator == null) return false;
-
-        String columnName = actualFilter.substring(0, operatorIndex).trim();
-        String filterValue = "";
-        String filterValue2 = "";
-
-        if (!operator.equals("IsEmpty") && !operator.equals("IsFull")) {
-            if (operatorIndex + operator.length() + 2 < actualFilter.length()) {
-                String remainingValue = actualFilter.substring(operatorIndex + operator.length() + 2).trim();
-
-                if (operator.equals("Between")) {
-                    String[] values = remainingValue.split(" ", 2);
-                    if (values.length >= 2) {
-                        filterValue = values[0].trim();
-                        filterValue2 = values[1].trim();
-                    }
-                } else {
-                    filterValue = remainingValue;
-                }
+        if (row instanceof ColumnarDataset.RowView) {
+            ColumnarDataset.RowView view = (ColumnarDataset.RowView) row;
+            if (view.getDataset().getHeaders() == headers) {
+                return getMatchingRows(view.getDataset()).contains(view.getRowIndex());
             }
         }
-
-        int columnIndex = -1;
-        for (int i = 0; i < headers.size(); i++) {
-            if (headers.get(i).trim().equalsIgnoreCase(columnName)) {
-                columnIndex = i;
-                break;
-            }
-        }
-
-        if (columnIndex == -1 || columnIndex >= row.size()) return false;
-
-        String rowValue = row.get(columnIndex);
-        if (rowValue == null) rowValue = "";
-        rowValue = rowValue.trim();
-
-        boolean result = applyOperator(rowValue, filterValue, filterValue2, operator);
-
-        return isNot ? !result : result;
+        return getCompiledFilter(headers).test(row);
     }
 
-    private boolean applyOperator(String rowValue, String filterValue, String filterValue2, String operator) {
-        switch (operator) {
-            case "IsEmpty":
-                return rowValue.isEmpty();
-
-            case "IsFull":
-                return !rowValue.isEmpty();
-
-            case "Equals":
-                if (filterValue.equalsIgnoreCase("null") || filterValue.isEmpty()) {
-                    return rowValue.isEmpty();
-                } else {
-                    return rowValue.equals(filterValue);
-                }
-
-            case "Has":
-                return rowValue.toLowerCase().contains(filterValue.toLowerCase());
-
-            case "Between":
-                return betweenComparison(rowValue, filterValue, filterValue2);
-
-            case "LessThan":
-            case "LessOrEqual":
-            case "GreaterThan":
-            case "GreaterOrEqual":
-                return compareValues(rowValue, filterValue, operator);
-
-            default:
-                return rowValue.equals(filterValue);
-        }
-    }
-
-    private boolean betweenComparison(String rowValue, String fromValue, String toValue) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-            sdf.setLenient(false);
-            Date rowDate = sdf.parse(rowValue);
-            Date fromDate = sdf.parse(fromValue);
-            Date toDate = sdf.parse(toValue);
-
-            return (rowDate.equals(fromDate) || rowDate.after(fromDate)) &&
-                    (rowDate.equals(toDate) || rowDate.before(toDate));
-        } catch (Exception dateEx) {
-            try {
-                double rowNum = Double.parseDouble(rowValue);
-                double fromNum = Double.parseDouble(fromValue);
-                double toNum = Double.parseDouble(toValue);
-
-                return rowNum >= fromNum && rowNum <= toNum;
-            } catch (Exception numEx) {
-                return false;
-            }
+    private synchronized CompiledFilter getCompiledFilter(List<String> headers) {
+        if (compiledFilter == null || compiledHeaders != headers) {
+            compiledFilter = FilterCompiler.compile(activeFilters, isOrMode, headers);
+            compiledHeaders = headers;
         }
+        return compiledFilter;
     }
 
-    private boolean compareValues(String rowValue, String filterValue, String operator) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-            sdf.setLenient(false);
-            Date rowDate = sdf.parse(rowValue);
-            Date filterDate = sdf.parse(filterValue);
-
-            switch (operator) {
-                case "LessThan": return rowDate.before(filterDate);
-                case "LessOrEqual": return rowDate.before(filterDate) || rowDate.equals(filterDate);
-                case "GreaterThan": return rowDate.after(filterDate);
-                case "GreaterOrEqual": return rowDate.after(filterDate) || rowDate.equals(filterDate);
-            }
-        } catch (Exception dateEx) {
-            try {
-                double rowNum = Double.parseDouble(rowValue);
-                double compareNum = Double.parseDouble(filterValue);
-
-                switch (operator) {
-                    case "LessThan": return rowNum < compareNum;
-                    case "LessOrEqual": return rowNum <= compareNum;
-                    case "GreaterThan": return rowNum > compareNum;
-                    case "GreaterOrEqual": return rowNum >= compareNum;
-                }
-            } catch (Exception numEx) {
-                return false;
-            }
-        }
-        return false;
+    private synchronized void invalidateCompiledFilter() {
+        filterGeneration++;
+        compiledFilter = null;
+        compiledHeaders = null;
+        matchingRows = null;
+        matchingDataset = null;
     }
 
     public TextField getColumnFilterField() {
@@ -1,117 +1,249 @@
-import java.text.SimpleDateFormat;
-import java.util.Date;
-
+// The filter operators (IsEmpty, IsFull, Equals, Has, Between and the comparisons),
+// implemented once for FilterManager, CountManager and the TableEditor conditional
+// columns. An Operation holds one operator with its operands parsed up front and can
+// test a single value or evaluate a whole column into a row bitmap, through the
+// column's indexes where they give the same answer as a scan.
 public class FilterOperations {
 
+    // Callers testing many values against the same condition reuse its parsed operands
+    private static volatile Operation lastOperation;
+
     public static boolean applyOperator(String operator, String rowValue, String filterValue) {
         return applyOperator(operator, rowValue, filterValue, null);
     }
 
     public static boolean applyOperator(String operator, String rowValue, String filterValue, String filterValue2) {
-        switch (operator) {
-            case "IsEmpty":
-                return rowValue.isEmpty();
+        Operation operation = lastOperation;
+        if (operation == null || !operation.matches(operator, filterValue, filterValue2)) {
+            operation = Operation.of(operator, filterValue, filterValue2, false);
+            lastOperation = operation;
+        }
+        return operation.test(rowValue);
+    }
 
-            case "IsFull":
-                return !rowValue.isEmpty();
+    // The candidate rows of the column where the operation holds
+    public static RowBitmap evaluate(ColumnarDataset.Column column, Operation operation, RowBitmap candidates) {
+        return operation.evaluate(column, candidates);
+    }
+
+    public static RowBitmap evaluate(ColumnarDataset.Column column, Operation operation) {
+        return operation.evaluate(column, RowBitmap.full(column.size()));
+    }
+
+    public static final class Operation {
+        private final String operator;
+        private final TypedValues.Operand operand;
+        private final TypedValues.Operand operand2;
+        private final TypedValues.Comparison comparison;
+        private final String lowerValue;
+        private final boolean textFallback;
+
+        private Operation(String operator, String value, String value2, boolean textFallback) {
+            this.operator = operator;
+            this.operand = TypedValues.Operand.of(value);
+            this.operand2 = TypedValues.Operand.of(value2);
+            this.comparison = TypedValues.Comparison.fromOperator(operator);
+            this.lowerValue = operand.getText().toLowerCase();
+            this.textFallback = textFallback;
+        }
+
+        // textFallback selects CountManager's semantics for Between and the comparisons:
+        // an empty operand never matches, and values that are neither dates nor numbers
+        // on both sides are compared as text, ignoring case. Without it they never match.
+        public static Operation of(String operator, String value, String value2, boolean textFallback) {
+            return new Operation(operator != null ? operator : "", value, value2, textFallback);
+        }
+
+        public String getOperator() {
+            return operator;
+        }
 
-            case "Equals":
-                if (filterValue.equalsIgnoreCase("null") || filterValue.isEmpty()) {
+        private boolean matches(String operator, String value, String value2) {
+            return !textFallback && this.operator.equals(operator != null ? operator : "")
+                    && operand.getText().equals(value != null ? value : "")
+                    && operand2.getText().equals(value2 != null ? value2 : "");
+        }
+
+        // Answered by the value index whatever the column
+        public boolean isIndexed() {
+            return comparison == null && !operator.equals("Between");
+        }
+
+        // Answered by one of the column's indexes, without scanning it
+        public boolean isIndexed(ColumnarDataset.Column column) {
+            return isIndexed() || isRangeIndexed(column);
+        }
+
+        private boolean isEmptyEquals() {
+            return operand.getText().equalsIgnoreCase("null") || operand.getText().isEmpty();
+        }
+
+        // One trimmed cell value
+        public boolean test(String rowValue) {
+            switch (operator) {
+                case "IsEmpty":
                     return rowValue.isEmpty();
-                } else {
-                    return rowValue.equals(filterValue);
-                }
 
-            case "Has":
-                return rowValue.toLowerCase().contains(filterValue.toLowerCase());
+                case "IsFull":
+                    return !rowValue.isEmpty();
 
-            case "Between":
-                if (filterValue2 == null || filterValue2.isEmpty()) {
-                    return false;
-                }
-                return betweenComparison(rowValue, filterValue, filterValue2);
+                case "Equals":
+                    return isEmptyEquals() ? rowValue.isEmpty() : rowValue.equals(operand.getText());
 
-            case "LessThan":
-            case "LessOrEqual":
-            case "GreaterThan":
-            case "GreaterOrEqual":
-                return compareValues(operator, rowValue, filterValue);
+                case "Has":
+                    return rowValue.toLowerCase().contains(lowerValue);
 
-            default:
-                return rowValue.equals(filterValue);
+                case "Between":
+                    return between(TypedValues.parseDate(rowValue), TypedValues.parseNumber(rowValue), rowValue);
+
+                default:
+                    if (comparison != null) {
+                        return compare(TypedValues.parseDate(rowValue), TypedValues.parseNumber(rowValue), rowValue);
+                    }
+                    return rowValue.equals(operand.getText());
+            }
         }
-    }
 
-    private static boolean betweenComparison(String rowValue, String fromValue, String toValue) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-            sdf.setLenient(false);
-            Date rowDate = sdf.parse(rowValue);
-            Date fromDate = sdf.parse(fromValue);
-            Date toDate = sdf.parse(toValue);
-
-            return (rowDate.equals(fromDate) || rowDate.after(fromDate)) &&
-                    (rowDate.equals(toDate) || rowDate.before(toDate));
-        } catch (Exception dateEx) {
-            try {
-                double rowNum = Double.parseDouble(rowValue);
-                double fromNum = Double.parseDouble(fromValue);
-                double toNum = Double.parseDouble(toValue);
-
-                return rowNum >= fromNum && rowNum <= toNum;
-            } catch (Exception numEx) {
-                return false;
+        // One cell of a column, using its pre-parsed date and number keys. The text is
+        // only read when the operator needs it.
+        public boolean test(ColumnarDataset.Column column, int row) {
+            boolean between = operator.equals("Between");
+            if (!between && comparison == null) {
+                return test(column.getValue(row).trim());
             }
+
+            String rowValue = textFallback ? column.getValue(row).trim() : null;
+            if (between) {
+                return between(column.getDateKey(row), column.getNumberKey(row), rowValue);
+            }
+            return compare(column.getDateKey(row), column.getNumberKey(row), rowValue);
         }
-    }
 
-    private static boolean compareValues(String operator, String rowValue, String filterValue) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-            sdf.setLenient(false);
-            Date rowDate = sdf.parse(rowValue);
-            Date filterDate = sdf.parse(filterValue);
-
-            return compareDates(operator, rowDate, filterDate);
-        } catch (Exception dateEx) {
-            try {
-                double rowNum = Double.parseDouble(rowValue);
-                double compareNum = Double.parseDouble(filterValue);
-
-                return compareNumbers(operator, rowNum, compareNum);
-            } catch (Exception numEx) {
-                return false;
+        private boolean compare(int rowDate, double rowNumber, String rowValue) {
+            if (!textFallback) {
+                return TypedValues.compare(comparison, rowDate, rowNumber, operand);
             }
+            if (operand.getText().isEmpty()) return false;
+
+            if (rowDate != TypedValues.NO_DATE && operand.isDate()) {
+                return comparison.test(rowDate, operand.getDate());
+            }
+            if (!Double.isNaN(rowNumber) && operand.isNumber()) {
+                return comparison.test(rowNumber, operand.getNumber());
+            }
+            return comparison.test(rowValue.compareToIgnoreCase(operand.getText()), 0);
         }
-    }
 
-    private static boolean compareDates(String operator, Date rowDate, Date filterDate) {
-        switch (operator) {
-            case "LessThan":
-                return rowDate.before(filterDate);
-            case "LessOrEqual":
-                return rowDate.before(filterDate) || rowDate.equals(filterDate);
-            case "GreaterThan":
-                return rowDate.after(filterDate);
-            case "GreaterOrEqual":
-                return rowDate.after(filterDate) || rowDate.equals(filterDate);
-            default:
-                return false;
+        private boolean between(int rowDate, double rowNumber, String rowValue) {
+            if (!textFallback) {
+                return TypedValues.between(rowDate, rowNumber, operand, operand2);
+            }
+            if (operand.getText().isEmpty() || operand2.getText().isEmpty()) return false;
+
+            if (rowDate != TypedValues.NO_DATE && operand.isDate() && operand2.isDate()) {
+                return rowDate >= operand.getDate() && rowDate <= operand2.getDate();
+            }
+            if (!Double.isNaN(rowNumber) && operand.isNumber() && operand2.isNumber()) {
+                return rowNumber >= operand.getNumber() && rowNumber <= operand2.getNumber();
+            }
+            return rowValue.compareToIgnoreCase(operand.getText()) >= 0
+                    && rowValue.compareToIgnoreCase(operand2.getText()) <= 0;
         }
-    }
 
-    private static boolean compareNumbers(String operator, double rowNum, double compareNum) {
-        switch (operator) {
-            case "LessThan":
-                return rowNum < compareNum;
-            case "LessOrEqual":
-                return rowNum <= compareNum;
-            case "GreaterThan":
-                return rowNum > compareNum;
-            case "GreaterOrEqual":
-                return rowNum >= compareNum;
-            default:
-                return false;
+        // The candidate rows where the operation holds. Equality and emptiness come from
+        // the value index, Has from its trigram index, ranges on typed columns from the
+        // sort index; anything else is a parallel scan of the candidates.
+        public RowBitmap evaluate(ColumnarDataset.Column column, RowBitmap candidates) {
+            if (candidates.isEmpty()) return candidates;
+
+            switch (operator) {
+                case "IsEmpty":
+                    return column.getValueIndex().getEmptyRows().and(candidates);
+
+                case "IsFull":
+                    return column.getValueIndex().getFilledRows().and(candidates);
+
+                case "Has":
+                    return column.getValueIndex().getRowsContaining(lowerValue, column.size()).and(candidates);
+
+                case "Between":
+                    if (isRangeIndexed(column)) {
+                        boolean dates = operand.isDate() && operand2.isDate();
+                        return withEmptyRows(column, column.getSortIndex(dates).between(
+                                dates ? operand.getDate() : operand.getNumber(),
+                                dates ? operand2.getDate() : operand2.getNumber()), candidates);
+                    }
+                    return scan(column, candidates);
+
+                default:
+                    if (comparison != null) {
+                        if (isRangeIndexed(column)) {
+                            boolean dates = operand.isDate();
+                            return withEmptyRows(column, column.getSortIndex(dates).compare(comparison,
+                                    dates ? operand.getDate() : operand.getNumber()), candidates);
+                        }
+                        return scan(column, candidates);
+                    }
+                    if (isEmptyEquals()) {
+                        return column.getValueIndex().getEmptyRows().and(candidates);
+                    }
+                    return column.getValueIndex().getRows(operand.getText()).and(candidates);
+            }
+        }
+
+        // Builds whichever of the column's indexes evaluate() will read, so its one-time
+        // cost can be kept apart from the cost of the lookup itself
+        public void buildIndexes(ColumnarDataset.Column column) {
+            switch (operator) {
+                case "Has":
+                    column.getValueIndex().getTrigramIndex();
+                    return;
+
+                case "Between":
+                    if (isRangeIndexed(column)) {
+                        column.getSortIndex(operand.isDate() && operand2.isDate());
+                        column.getValueIndex();
+                    }
+                    return;
+
+                default:
+                    if (comparison == null) {
+                        column.getValueIndex();
+                    } else if (isRangeIndexed(column)) {
+                        column.getSortIndex(operand.isDate());
+                        column.getValueIndex();
+                    }
+            }
+        }
+
+        private RowBitmap scan(ColumnarDataset.Column column, RowBitmap candidates) {
+            return ParallelRowScan.filter(candidates, row -> test(column, row));
+        }
+
+        // The sort index holds the rows with a valid key. With the text fallback, empty
+        // cells are compared as "" and either all match or none do.
+        private RowBitmap withEmptyRows(ColumnarDataset.Column column, RowBitmap indexed, RowBitmap candidates) {
+            RowBitmap rows = indexed;
+            if (textFallback && test("")) {
+                rows = rows.or(column.getValueIndex().getEmptyRows());
+            }
+            return rows.and(candidates);
+        }
+
+        // Whether the sort index gives exactly the scan's answer for this column. Without
+        // the text fallback every typed column does; with it, only when every filled cell
+        // takes the typed branch (date operands on date columns, numbers on numeric ones).
+        private boolean isRangeIndexed(ColumnarDataset.Column column) {
+            boolean between = operator.equals("Between");
+            switch (column.getType()) {
+                case DATE:
+                    return !textFallback || (operand.isDate() && (!between || operand2.isDate()));
+                case NUMERIC:
+                    return !textFallback || (operand.isNumber() && !operand.isDate()
+                            && (!between || (operand2.isNumber() && !operand2.isDate())));
+                default:
+                    return false;
+            }
         }
     }
-}
\ No newline at end of file
+}
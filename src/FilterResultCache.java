@@ -0,0 +1,133 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Per-filter row bitmaps shared by every manager that filters, keyed by dataset version
+// and canonical filter key (see FilterCompiler.canonicalKey). Least recently used
+// entries are dropped once the bitmaps exceed the memory budget.
+public final class FilterResultCache {
+    private static final FilterResultCache SHARED = new FilterResultCache(64L * 1024 * 1024);
+
+    private final LinkedHashMap<String, Result> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long budgetBytes;
+    private long usedBytes;
+    private long hits;
+    private long misses;
+
+    public FilterResultCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public static FilterResultCache shared() {
+        return SHARED;
+    }
+
+    // A filter's matches among the rows it has been evaluated on so far
+    private static final class Result {
+        private final RowBitmap matches;
+        private final RowBitmap evaluatedRows;
+        private final long sizeInBytes;
+
+        Result(RowBitmap matches, RowBitmap evaluatedRows) {
+            this.matches = matches;
+            this.evaluatedRows = evaluatedRows;
+            this.sizeInBytes = matches.sizeInBytes() + evaluatedRows.sizeInBytes() + 64;
+        }
+    }
+
+    // The rows passing the filter, evaluating it only on rows no earlier call covered
+    public RowBitmap evaluate(ColumnarDataset dataset, String key, CompiledFilter filter, RowBitmap rows) {
+        if (key == null) {
+            return filter.evaluate(dataset, rows);
+        }
+
+        String entryKey = entryKey(dataset, key);
+        Result cached = get(entryKey);
+        if (cached == null) {
+            RowBitmap matches = filter.evaluate(dataset, rows);
+            put(entryKey, new Result(matches, rows));
+            return matches;
+        }
+
+        RowBitmap unseen = rows.andNot(cached.evaluatedRows);
+        if (unseen.isEmpty()) {
+            return cached.matches.and(rows);
+        }
+
+        Result updated = new Result(cached.matches.or(filter.evaluate(dataset, unseen)), cached.evaluatedRows.or(unseen));
+        put(entryKey, updated);
+        return updated.matches.and(rows);
+    }
+
+    // For callers that always evaluate over the whole dataset
+    public RowBitmap getOrCompute(ColumnarDataset dataset, String key, Supplier<RowBitmap> evaluator) {
+        String entryKey = entryKey(dataset, key);
+        Result cached = get(entryKey);
+        if (cached != null && cached.evaluatedRows.getCardinality() == dataset.getRowCount()) {
+            return cached.matches;
+        }
+
+        RowBitmap matches = evaluator.get();
+        put(entryKey, new Result(matches, RowBitmap.full(dataset.getRowCount())));
+        return matches;
+    }
+
+    // Matches over the whole dataset if already known, without computing them
+    public RowBitmap getIfComplete(ColumnarDataset dataset, String key) {
+        Result cached = get(entryKey(dataset, key));
+        return cached != null && cached.evaluatedRows.getCardinality() == dataset.getRowCount() ? cached.matches : null;
+    }
+
+    // Whether any rows of the filter are known, without counting as a lookup
+    public synchronized boolean contains(ColumnarDataset dataset, String key) {
+        return key != null && entries.containsKey(entryKey(dataset, key));
+    }
+
+    private static String entryKey(ColumnarDataset dataset, String key) {
+        return dataset.getVersion() + "\u001f" + key;
+    }
+
+    private synchronized Result get(String entryKey) {
+        Result result = entries.get(entryKey);
+        if (result != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return result;
+    }
+
+    private synchronized void put(String entryKey, Result result) {
+        Result previous = entries.put(entryKey, result);
+        if (previous != null) {
+            usedBytes -= previous.sizeInBytes;
+        }
+        usedBytes += result.sizeInBytes;
+        evictToBudget();
+    }
+
+    private void evictToBudget() {
+        Iterator<Map.Entry<String, Result>> iterator = entries.entrySet().iterator();
+        while (usedBytes > budgetBytes && iterator.hasNext()) {
+            usedBytes -= iterator.next().getValue().sizeInBytes;
+            iterator.remove();
+        }
+    }
+
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        evictToBudget();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "FilterResultCache[" + entries.size() + " entries, " + usedBytes / 1024 + " KB of "
+                + budgetBytes / 1024 + " KB, " + hits + " hits, " + misses + " misses]";
+    }
+}
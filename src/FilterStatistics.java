@@ -0,0 +1,177 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Observed selectivity (share of evaluated rows that matched) and cost (nanoseconds per
+// evaluated row) for each condition, keyed by its canonical key. Used to order AND
+// children most-selective/cheapest first and OR children least-selective first, so
+// evaluation narrows or settles rows as early as possible. Conditions never seen before
+// are measured on a small evenly spaced sample of the dataset. Keys name columns by
+// index, so the statistics are cleared when another sheet is loaded, and only the most
+// recently used conditions are kept.
+public final class FilterStatistics {
+    private static final FilterStatistics SHARED = new FilterStatistics();
+    private static final int SAMPLE_SIZE = 1024;
+    private static final double INDEXED_NANOS_PER_ROW = 0.5;
+    private static final double DEFAULT_SELECTIVITY = 0.5;
+    private static final double DEFAULT_NANOS_PER_ROW = 40;
+    private static final int MAX_OBSERVATIONS = 4096;
+
+    private final Map<String, Observation> observations = new LinkedHashMap<String, Observation>(64, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Observation> eldest) {
+            return size() > MAX_OBSERVATIONS;
+        }
+    };
+
+    public static FilterStatistics shared() {
+        return SHARED;
+    }
+
+    private static final class Observation {
+        private final double selectivity;
+        private final double nanosPerRow;
+        private final double weight;
+
+        Observation(double selectivity, double nanosPerRow, double weight) {
+            this.selectivity = selectivity;
+            this.nanosPerRow = nanosPerRow;
+            this.weight = weight;
+        }
+    }
+
+    public void record(String key, int rowsEvaluated, int matches, long nanos) {
+        if (key == null || rowsEvaluated == 0) return;
+
+        double selectivity = (double) matches / rowsEvaluated;
+        double nanosPerRow = (double) nanos / rowsEvaluated;
+        Observation observation = new Observation(selectivity, nanosPerRow, rowsEvaluated);
+        synchronized (observations) {
+            observations.merge(key, observation, FilterStatistics::combine);
+        }
+    }
+
+    private static Observation combine(Observation old, Observation now) {
+        // Older runs count for half each time so the numbers follow the data
+        double oldWeight = Math.min(old.weight, 1_000_000) / 2;
+        double total = oldWeight + now.weight;
+        return new Observation(
+                (old.selectivity * oldWeight + now.selectivity * now.weight) / total,
+                (old.nanosPerRow * oldWeight + now.nanosPerRow * now.weight) / total,
+                total);
+    }
+
+    private Observation observation(CompiledFilter filter) {
+        String key = filter.getCacheKey();
+        if (key == null) return null;
+        synchronized (observations) {
+            return observations.get(key);
+        }
+    }
+
+    // Forget everything measured, e.g. when another sheet replaces the dataset
+    public void clear() {
+        synchronized (observations) {
+            observations.clear();
+        }
+    }
+
+    public double selectivity(CompiledFilter filter) {
+        if (filter instanceof CompiledFilter.Not) {
+            return 1 - selectivity(filter.getChildren()[0]);
+        }
+        if (filter instanceof CompiledFilter.And || filter instanceof CompiledFilter.Or) {
+            boolean or = filter instanceof CompiledFilter.Or;
+            double none = 1;
+            double all = 1;
+            for (CompiledFilter child : filter.getChildren()) {
+                double childSelectivity = selectivity(child);
+                all *= childSelectivity;
+                none *= 1 - childSelectivity;
+            }
+            return or ? 1 - none : all;
+        }
+        if (filter == CompiledFilter.MATCH_ALL) return 1;
+        if (filter == CompiledFilter.MATCH_NONE) return 0;
+
+        Observation observation = observation(filter);
+        return observation != null ? observation.selectivity : DEFAULT_SELECTIVITY;
+    }
+
+    public double nanosPerRow(CompiledFilter filter) {
+        if (isGroup(filter)) {
+            double total = 0;
+            for (CompiledFilter child : filter.getChildren()) {
+                total += nanosPerRow(child);
+            }
+            return total;
+        }
+        if (filter.isIndexed()) return INDEXED_NANOS_PER_ROW;
+
+        Observation observation = observation(filter);
+        return observation != null ? observation.nanosPerRow : DEFAULT_NANOS_PER_ROW;
+    }
+
+    // Evaluation order for the children of an AND (orMode false) or OR node. With a
+    // dataset, conditions without statistics are first measured on a sample of it.
+    public CompiledFilter[] order(CompiledFilter[] filters, boolean orMode, ColumnarDataset dataset) {
+        if (filters.length < 2) return filters;
+
+        if (dataset != null) {
+            for (CompiledFilter filter : filters) {
+                sampleIfUnknown(filter, dataset);
+            }
+        }
+
+        // Expected cost per row settled: AND settles a row when it fails, OR when it matches
+        double[] ranks = new double[filters.length];
+        Integer[] order = new Integer[filters.length];
+        for (int i = 0; i < filters.length; i++) {
+            double selectivity = selectivity(filters[i]);
+            double settles = orMode ? selectivity : 1 - selectivity;
+            ranks[i] = (nanosPerRow(filters[i]) + 0.01) / Math.max(settles, 1e-6);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> ranks[i]));
+
+        CompiledFilter[] ordered = new CompiledFilter[filters.length];
+        for (int i = 0; i < ordered.length; i++) {
+            ordered[i] = filters[order[i]];
+        }
+        return ordered;
+    }
+
+    private void sampleIfUnknown(CompiledFilter filter, ColumnarDataset dataset) {
+        if (isGroup(filter)) {
+            for (CompiledFilter child : filter.getChildren()) {
+                sampleIfUnknown(child, dataset);
+            }
+            return;
+        }
+        String key = filter.getCacheKey();
+        if (key == null || observation(filter) != null || dataset.getRowCount() == 0) return;
+
+        // Records its own observation as it evaluates
+        filter.evaluate(dataset, sampleRows(dataset.getRowCount()));
+    }
+
+    private static boolean isGroup(CompiledFilter filter) {
+        return filter instanceof CompiledFilter.And || filter instanceof CompiledFilter.Or
+                || filter instanceof CompiledFilter.Not;
+    }
+
+    private static RowBitmap sampleRows(int rowCount) {
+        if (rowCount <= SAMPLE_SIZE) {
+            return RowBitmap.full(rowCount);
+        }
+        int[] rows = new int[SAMPLE_SIZE];
+        double step = (double) rowCount / SAMPLE_SIZE;
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            rows[i] = (int) (i * step);
+        }
+        return RowBitmap.fromSorted(rows, 0, rows.length);
+    }
+}
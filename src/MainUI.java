@@ -27,6 +27,8 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
 
 import javafx.scene.control.TableView;
@@ -327,6 +329,9 @@ public class MainUI extends Application {
             loadingImage.setVisible(true);
         }
 
+        // Only the columns left visible by the column filter, snapshotted on the FX thread
+        List<TableColumn<ObservableList<String>, ?>> exportColumns = new ArrayList<>(table.getVisibleLeafColumns());
+
         Task<Void> exportTask = new Task<>() {
             @Override
             protected Void call() throws Exception {
@@ -352,10 +357,10 @@ public class MainUI extends Application {
                     headerStyle.setBorderRight(BorderStyle.THICK);
                     headerStyle.setBorderLeft(BorderStyle.THICK);
 
-                    if (table.getColumns() != null) {
-                        for (int col = 0; col < table.getColumns().size(); col++) {
+                    if (exportColumns != null) {
+                        for (int col = 0; col < exportColumns.size(); col++) {
                             Cell cell = headerRow.createCell(col);
-                            String columnText = table.getColumns().get(col).getText();
+                            String columnText = exportColumns.get(col).getText();
                             cell.setCellValue(columnText != null ? columnText : "Column " + col);
                             cell.setCellStyle(headerStyle);
                         }
@@ -372,18 +377,19 @@ public class MainUI extends Application {
                         Row dataRow = sheet.createRow(rowIndex + 1);
                         ObservableList<String> rowData = items.get(rowIndex);
 
+                        // Items are whole source rows; each visible column picks its own cell
                         if (rowData != null) {
-                            for (int colIndex = 0; colIndex < rowData.size(); colIndex++) {
+                            for (int colIndex = 0; colIndex < exportColumns.size(); colIndex++) {
                                 Cell cell = dataRow.createCell(colIndex);
-                                String cellValue = rowData.get(colIndex);
-                                cell.setCellValue(cellValue != null ? cellValue : "");
+                                Object cellValue = exportColumns.get(colIndex).getCellObservableValue(rowData).getValue();
+                                cell.setCellValue(cellValue != null ? cellValue.toString() : "");
                                 cell.setCellStyle(dataStyle);
                             }
                         }
                     }
 
                     
-                    for (int i = 0; i < table.getColumns().size(); i++) {
+                    for (int i = 0; i < exportColumns.size(); i++) {
                         sheet.autoSizeColumn(i);
                     }
 
@@ -733,11 +739,12 @@ public class MainUI extends Application {
             protected Void call() throws Exception {
                 dataManager.loadExcelFile(selectedFile);
 
-                filterManager.setData(dataManager.getHeaders(), dataManager.getAllRows());
-                tableController.setData(dataManager.getHeaders(), dataManager.getAllRows());
-                countManager.setData(dataManager.getHeaders(), dataManager.getAllRows());
+                DatasetHandle dataset = dataManager.getDatasetHandle();
+                filterManager.setData(dataset);
+                tableController.setData(dataset);
+                countManager.setData(dataset);
                 if (crosstabUI != null) {
-                    crosstabUI.setData(dataManager.getHeaders(), dataManager.getAllRows());
+                    crosstabUI.setData(dataset);
                 }
                 return null;
             }
@@ -769,7 +776,7 @@ public class MainUI extends Application {
                         showModernAlert("Success",
                                 "Preset '" + pendingPreset.name + "' loaded successfully!\n" +
                                         "File: " + new File(pendingPreset.filePath).getName() + "\n" +
-                                        "Rows: " + dataManager.getAllRows().size() +
+                                        "Rows: " + dataManager.getDataset().getRowCount() +
                                         ", Columns: " + dataManager.getHeaders().size() +
                                         ", Filters applied: " + pendingPreset.filters.size());
 
@@ -781,7 +788,7 @@ public class MainUI extends Application {
                             crosstabUI.refreshUI();
                         }
                         showModernAlert("Success",
-                                "Excel file loaded successfully!\nRows: " + dataManager.getAllRows().size() +
+                                "Excel file loaded successfully!\nRows: " + dataManager.getDataset().getRowCount() +
                                         ", Columns: " + dataManager.getHeaders().size());
                     }
 
@@ -850,8 +857,8 @@ public class MainUI extends Application {
         Stage fullscreenStage = new Stage();
         fullscreenStage.setTitle("🔍 Fullscreen Table View - XED");
 
-        TableView<ObservableList<String>> clonedTable = tableController.createClonedTableView();
-        ScrollPane fullscreenPane = new ScrollPane(clonedTable);
+        TableView<ObservableList<String>> sharedTable = tableController.createSharedTableView();
+        ScrollPane fullscreenPane = new ScrollPane(sharedTable);
         fullscreenPane.setFitToWidth(false);  
         fullscreenPane.setFitToHeight(true);
         fullscreenPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);  
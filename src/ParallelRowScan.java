@@ -0,0 +1,164 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+// Row-by-row predicate scans for the operators that have no index. The candidate rows
+// are split into the bitmap's 65536-row chunks, chunks are scanned on the fork/join
+// pool, and the per-chunk bitmaps are joined back in order. Scans below the threshold
+// stay on the calling thread. A scan started inside withCancellation() checks the
+// signal before every chunk and stops with a CancellationException once it is set.
+public final class ParallelRowScan {
+    private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+    private static final ThreadLocal<BooleanSupplier> CANCELLED = ThreadLocal.withInitial(() -> NEVER_CANCELLED);
+
+    private static volatile int parallelThreshold = Integer.getInteger("xed.parallelThreshold", 100_000);
+    private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private ParallelRowScan() {
+    }
+
+    public static int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    // Minimum number of candidate rows before a scan is split; Integer.MAX_VALUE disables it
+    public static void setParallelThreshold(int rows) {
+        parallelThreshold = Math.max(1, rows);
+    }
+
+    public static void setPool(ForkJoinPool forkJoinPool) {
+        pool = forkJoinPool != null ? forkJoinPool : ForkJoinPool.commonPool();
+    }
+
+    // Runs the work with every scan it starts on this thread stopping once cancelled
+    public static <T> T withCancellation(BooleanSupplier cancelled, Supplier<T> work) {
+        BooleanSupplier previous = CANCELLED.get();
+        CANCELLED.set(cancelled);
+        try {
+            checkCancelled(cancelled);
+            return work.get();
+        } finally {
+            CANCELLED.set(previous);
+        }
+    }
+
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
+    }
+
+    // The candidate rows for which the predicate holds. The predicate may be called
+    // from several threads at once.
+    public static RowBitmap filter(RowBitmap candidates, IntPredicate predicate) {
+        BooleanSupplier cancelled = CANCELLED.get();
+        int chunkCount = candidates.getChunkCount();
+        if (candidates.getCardinality() < parallelThreshold || chunkCount < 2 || pool.getParallelism() < 2) {
+            if (chunkCount < 2) {
+                checkCancelled(cancelled);
+                return scanChunk(candidates, predicate);
+            }
+            RowBitmap[] parts = new RowBitmap[chunkCount];
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                checkCancelled(cancelled);
+                parts[chunk] = scanChunk(candidates.getChunk(chunk), predicate);
+            }
+            return RowBitmap.concat(parts);
+        }
+        return pool.invoke(new ChunkScan(candidates, predicate, cancelled, 0, chunkCount));
+    }
+
+    public static RowBitmap filter(int rowCount, IntPredicate predicate) {
+        return filter(RowBitmap.full(rowCount), predicate);
+    }
+
+    // Runs chunkScan once for every 65536-row chunk of the rows, on the same pool and
+    // threshold as filter(). Chunks may run concurrently and in any order.
+    public static void forEachChunk(int rowCount, IntConsumer chunkScan) {
+        BooleanSupplier cancelled = CANCELLED.get();
+        int chunkCount = (rowCount + RowBitmap.CHUNK_SIZE - 1) / RowBitmap.CHUNK_SIZE;
+        if (rowCount < parallelThreshold || chunkCount < 2 || pool.getParallelism() < 2) {
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                checkCancelled(cancelled);
+                chunkScan.accept(chunk);
+            }
+            return;
+        }
+        pool.invoke(new ChunkRange(chunkScan, cancelled, 0, chunkCount));
+    }
+
+    private static RowBitmap scanChunk(RowBitmap rows, IntPredicate predicate) {
+        RowBitmap.Builder builder = new RowBitmap.Builder();
+        rows.forEach(row -> {
+            if (predicate.test(row)) builder.add(row);
+        });
+        return builder.build();
+    }
+
+    private static final class ChunkScan extends RecursiveTask<RowBitmap> {
+        private static final long serialVersionUID = 1L;
+
+        private final RowBitmap candidates;
+        private final IntPredicate predicate;
+        private final BooleanSupplier cancelled;
+        private final int fromChunk;
+        private final int toChunk;
+
+        ChunkScan(RowBitmap candidates, IntPredicate predicate, BooleanSupplier cancelled, int fromChunk, int toChunk) {
+            this.candidates = candidates;
+            this.predicate = predicate;
+            this.cancelled = cancelled;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected RowBitmap compute() {
+            if (toChunk - fromChunk == 1) {
+                checkCancelled(cancelled);
+                return scanChunk(candidates.getChunk(fromChunk), predicate);
+            }
+
+            int middle = (fromChunk + toChunk) >>> 1;
+            ChunkScan left = new ChunkScan(candidates, predicate, cancelled, fromChunk, middle);
+            ChunkScan right = new ChunkScan(candidates, predicate, cancelled, middle, toChunk);
+            left.fork();
+            RowBitmap rightRows = right.compute();
+            return RowBitmap.concat(new RowBitmap[]{left.join(), rightRows});
+        }
+    }
+
+    private static final class ChunkRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer chunkScan;
+        private final BooleanSupplier cancelled;
+        private final int fromChunk;
+        private final int toChunk;
+
+        ChunkRange(IntConsumer chunkScan, BooleanSupplier cancelled, int fromChunk, int toChunk) {
+            this.chunkScan = chunkScan;
+            this.cancelled = cancelled;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk == 1) {
+                checkCancelled(cancelled);
+                chunkScan.accept(fromChunk);
+                return;
+            }
+
+            int middle = (fromChunk + toChunk) >>> 1;
+            invokeAll(new ChunkRange(chunkScan, cancelled, fromChunk, middle),
+                    new ChunkRange(chunkScan, cancelled, middle, toChunk));
+        }
+    }
+}
@@ -0,0 +1,559 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+// Immutable compressed set of row ids, laid out like a roaring bitmap: rows are split
+// into 65536-row chunks keyed by their high 16 bits, and each chunk is either a sorted
+// array of low bits (sparse, < 4096 rows) or a 1024-word bitset (dense).
+public final class RowBitmap {
+    static final int CHUNK_BITS = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int WORDS = CHUNK_SIZE / 64;
+
+    private static final RowBitmap EMPTY = new RowBitmap(new char[0], new Container[0]);
+
+    private final char[] keys;
+    private final Container[] containers;
+    private final int cardinality;
+
+    private RowBitmap(char[] keys, Container[] containers) {
+        this.keys = keys;
+        this.containers = containers;
+        int total = 0;
+        for (Container container : containers) {
+            total += container.cardinality();
+        }
+        this.cardinality = total;
+    }
+
+    public static RowBitmap empty() {
+        return EMPTY;
+    }
+
+    // Rows [from, to)
+    public static RowBitmap range(int from, int to) {
+        if (from >= to) return EMPTY;
+
+        int firstKey = from >>> CHUNK_BITS;
+        int lastKey = (to - 1) >>> CHUNK_BITS;
+        char[] keys = new char[lastKey - firstKey + 1];
+        Container[] containers = new Container[keys.length];
+
+        for (int key = firstKey; key <= lastKey; key++) {
+            int start = key == firstKey ? from & (CHUNK_SIZE - 1) : 0;
+            int end = key == lastKey ? ((to - 1) & (CHUNK_SIZE - 1)) + 1 : CHUNK_SIZE;
+            keys[key - firstKey] = (char) key;
+            containers[key - firstKey] = rangeContainer(start, end);
+        }
+        return new RowBitmap(keys, containers);
+    }
+
+    public static RowBitmap full(int rowCount) {
+        return range(0, rowCount);
+    }
+
+    // Builds from an ascending run of row ids, e.g. one slice of a counting sort
+    public static RowBitmap fromSorted(int[] rows, int from, int to) {
+        if (from >= to) return EMPTY;
+
+        char[] keys = new char[8];
+        Container[] containers = new Container[8];
+        int count = 0;
+
+        int i = from;
+        while (i < to) {
+            int key = rows[i] >>> CHUNK_BITS;
+            int end = i;
+            while (end < to && (rows[end] >>> CHUNK_BITS) == key) end++;
+
+            Container container;
+            if (end - i < ARRAY_LIMIT) {
+                char[] values = new char[end - i];
+                for (int j = i; j < end; j++) {
+                    values[j - i] = (char) rows[j];
+                }
+                container = new ArrayContainer(values);
+            } else {
+                long[] words = new long[WORDS];
+                for (int j = i; j < end; j++) {
+                    words[(rows[j] & (CHUNK_SIZE - 1)) >>> 6] |= 1L << rows[j];
+                }
+                container = new BitmapContainer(words, end - i);
+            }
+
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+                containers = Arrays.copyOf(containers, count * 2);
+            }
+            keys[count] = (char) key;
+            containers[count] = container;
+            count++;
+            i = end;
+        }
+        return new RowBitmap(Arrays.copyOf(keys, count), Arrays.copyOf(containers, count));
+    }
+
+    // Joins bitmaps whose chunks are already in ascending order and do not overlap,
+    // e.g. per-chunk results computed in parallel
+    public static RowBitmap concat(RowBitmap[] parts) {
+        int count = 0;
+        for (RowBitmap part : parts) {
+            count += part.keys.length;
+        }
+
+        char[] keys = new char[count];
+        Container[] containers = new Container[count];
+        int offset = 0;
+        for (RowBitmap part : parts) {
+            if (offset > 0 && part.keys.length > 0 && part.keys[0] <= keys[offset - 1]) {
+                throw new IllegalArgumentException("Bitmaps overlap or are out of order");
+            }
+            System.arraycopy(part.keys, 0, keys, offset, part.keys.length);
+            System.arraycopy(part.containers, 0, containers, offset, part.containers.length);
+            offset += part.keys.length;
+        }
+        return count == 0 ? EMPTY : new RowBitmap(keys, containers);
+    }
+
+    public int getChunkCount() {
+        return keys.length;
+    }
+
+    // The rows of one 65536-row chunk, as a bitmap of its own
+    public RowBitmap getChunk(int index) {
+        return new RowBitmap(new char[]{keys[index]}, new Container[]{containers[index]});
+    }
+
+    public int getCardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int row) {
+        if (row < 0) return false;
+        int index = Arrays.binarySearch(keys, (char) (row >>> CHUNK_BITS));
+        return index >= 0 && containers[index].contains((char) row);
+    }
+
+    public RowBitmap and(RowBitmap other) {
+        if (isEmpty() || other.isEmpty()) return EMPTY;
+
+        char[] resultKeys = new char[Math.min(keys.length, other.keys.length)];
+        Container[] resultContainers = new Container[resultKeys.length];
+        int count = 0;
+
+        int i = 0, j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container != null) {
+                    resultKeys[count] = keys[i];
+                    resultContainers[count] = container;
+                    count++;
+                }
+                i++;
+                j++;
+            }
+        }
+        return count == 0 ? EMPTY : new RowBitmap(Arrays.copyOf(resultKeys, count), Arrays.copyOf(resultContainers, count));
+    }
+
+    public RowBitmap or(RowBitmap other) {
+        if (isEmpty()) return other;
+        if (other.isEmpty()) return this;
+
+        char[] resultKeys = new char[keys.length + other.keys.length];
+        Container[] resultContainers = new Container[resultKeys.length];
+        int count = 0;
+
+        int i = 0, j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            if (j >= other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                resultKeys[count] = keys[i];
+                resultContainers[count++] = containers[i++];
+            } else if (i >= keys.length || keys[i] > other.keys[j]) {
+                resultKeys[count] = other.keys[j];
+                resultContainers[count++] = other.containers[j++];
+            } else {
+                resultKeys[count] = keys[i];
+                resultContainers[count++] = containers[i++].or(other.containers[j++]);
+            }
+        }
+        return new RowBitmap(Arrays.copyOf(resultKeys, count), Arrays.copyOf(resultContainers, count));
+    }
+
+    public RowBitmap andNot(RowBitmap other) {
+        if (isEmpty() || other.isEmpty()) return this;
+
+        char[] resultKeys = new char[keys.length];
+        Container[] resultContainers = new Container[keys.length];
+        int count = 0;
+
+        int j = 0;
+        for (int i = 0; i < keys.length; i++) {
+            while (j < other.keys.length && other.keys[j] < keys[i]) j++;
+
+            Container container = containers[i];
+            if (j < other.keys.length && other.keys[j] == keys[i]) {
+                container = container.andNot(other.containers[j]);
+            }
+            if (container != null) {
+                resultKeys[count] = keys[i];
+                resultContainers[count++] = container;
+            }
+        }
+        return count == 0 ? EMPTY : new RowBitmap(Arrays.copyOf(resultKeys, count), Arrays.copyOf(resultContainers, count));
+    }
+
+    // Rows of [0, rowCount) that are not in this bitmap
+    public RowBitmap complement(int rowCount) {
+        return full(rowCount).andNot(this);
+    }
+
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            containers[i].forEach(keys[i] << CHUNK_BITS, consumer);
+        }
+    }
+
+    public int[] toArray() {
+        int[] rows = new int[cardinality];
+        int offset = 0;
+        for (int i = 0; i < keys.length; i++) {
+            offset = containers[i].copyTo(keys[i] << CHUNK_BITS, rows, offset);
+        }
+        return rows;
+    }
+
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private final int[] rows = toArray();
+            private int position = 0;
+
+            @Override
+            public boolean hasNext() {
+                return position < rows.length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (position >= rows.length) throw new NoSuchElementException();
+                return rows[position++];
+            }
+        };
+    }
+
+    public long sizeInBytes() {
+        long total = 48 + keys.length * 2L + containers.length * 8L;
+        for (Container container : containers) {
+            total += container.sizeInBytes();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "RowBitmap[" + cardinality + " rows in " + keys.length + " chunks]";
+    }
+
+    private static Container rangeContainer(int start, int end) {
+        if (end - start < ARRAY_LIMIT) {
+            char[] values = new char[end - start];
+            for (int i = start; i < end; i++) {
+                values[i - start] = (char) i;
+            }
+            return new ArrayContainer(values);
+        }
+        long[] words = new long[WORDS];
+        for (int i = start; i < end; ) {
+            if ((i & 63) == 0 && end - i >= 64) {
+                words[i >>> 6] = -1L;
+                i += 64;
+            } else {
+                words[i >>> 6] |= 1L << i;
+                i++;
+            }
+        }
+        return new BitmapContainer(words, end - start);
+    }
+
+    // Null when the words are all zero
+    private static Container fromWords(long[] words) {
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        if (cardinality == 0) return null;
+        if (cardinality >= ARRAY_LIMIT) return new BitmapContainer(words, cardinality);
+
+        char[] values = new char[cardinality];
+        int count = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                values[count++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return new ArrayContainer(values);
+    }
+
+    private abstract static class Container {
+        abstract int cardinality();
+
+        abstract boolean contains(char low);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract void forEach(int base, IntConsumer consumer);
+
+        abstract int copyTo(int base, int[] rows, int offset);
+
+        abstract long sizeInBytes();
+    }
+
+    private static final class ArrayContainer extends Container {
+        private final char[] values;
+
+        ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        @Override
+        int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, low) >= 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[values.length];
+            int count = 0;
+            if (other instanceof ArrayContainer) {
+                char[] otherValues = ((ArrayContainer) other).values;
+                int i = 0, j = 0;
+                while (i < values.length && j < otherValues.length) {
+                    if (values[i] < otherValues[j]) {
+                        i++;
+                    } else if (values[i] > otherValues[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (char value : values) {
+                    if (other.contains(value)) result[count++] = value;
+                }
+            }
+            return count == 0 ? null : new ArrayContainer(Arrays.copyOf(result, count));
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+
+            char[] otherValues = ((ArrayContainer) other).values;
+            char[] result = new char[values.length + otherValues.length];
+            int count = 0;
+            int i = 0, j = 0;
+            while (i < values.length || j < otherValues.length) {
+                if (j >= otherValues.length || (i < values.length && values[i] < otherValues[j])) {
+                    result[count++] = values[i++];
+                } else if (i >= values.length || values[i] > otherValues[j]) {
+                    result[count++] = otherValues[j++];
+                } else {
+                    result[count++] = values[i++];
+                    j++;
+                }
+            }
+
+            if (count < ARRAY_LIMIT) {
+                return new ArrayContainer(Arrays.copyOf(result, count));
+            }
+            long[] words = new long[WORDS];
+            for (int k = 0; k < count; k++) {
+                words[result[k] >>> 6] |= 1L << result[k];
+            }
+            return new BitmapContainer(words, count);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[values.length];
+            int count = 0;
+            for (char value : values) {
+                if (!other.contains(value)) result[count++] = value;
+            }
+            return count == 0 ? null : new ArrayContainer(Arrays.copyOf(result, count));
+        }
+
+        @Override
+        void forEach(int base, IntConsumer consumer) {
+            for (char value : values) {
+                consumer.accept(base | value);
+            }
+        }
+
+        @Override
+        int copyTo(int base, int[] rows, int offset) {
+            for (char value : values) {
+                rows[offset++] = base | value;
+            }
+            return offset;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 32 + values.length * 2L;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private final int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[WORDS];
+            for (int w = 0; w < WORDS; w++) {
+                result[w] = words[w] & otherWords[w];
+            }
+            return fromWords(result);
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = words.clone();
+            if (other instanceof ArrayContainer) {
+                for (char value : ((ArrayContainer) other).values) {
+                    result[value >>> 6] |= 1L << value;
+                }
+            } else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                for (int w = 0; w < WORDS; w++) {
+                    result[w] |= otherWords[w];
+                }
+            }
+            return fromWords(result);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            long[] result = words.clone();
+            if (other instanceof ArrayContainer) {
+                for (char value : ((ArrayContainer) other).values) {
+                    result[value >>> 6] &= ~(1L << value);
+                }
+            } else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                for (int w = 0; w < WORDS; w++) {
+                    result[w] &= ~otherWords[w];
+                }
+            }
+            return fromWords(result);
+        }
+
+        @Override
+        void forEach(int base, IntConsumer consumer) {
+            for (int w = 0; w < WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    consumer.accept(base + (w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        int copyTo(int base, int[] rows, int offset) {
+            for (int w = 0; w < WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    rows[offset++] = base + (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return offset;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 32 + WORDS * 8L;
+        }
+    }
+
+    // Collects row ids in any order; each touched chunk gets a bitset until build()
+    public static final class Builder {
+        private long[][] chunks = new long[4][];
+
+        public void add(int row) {
+            int key = row >>> CHUNK_BITS;
+            if (key >= chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(key + 1, chunks.length * 2));
+            }
+            long[] words = chunks[key];
+            if (words == null) {
+                words = new long[WORDS];
+                chunks[key] = words;
+            }
+            words[(row & (CHUNK_SIZE - 1)) >>> 6] |= 1L << row;
+        }
+
+        public RowBitmap build() {
+            char[] keys = new char[chunks.length];
+            Container[] containers = new Container[chunks.length];
+            int count = 0;
+            for (int key = 0; key < chunks.length; key++) {
+                if (chunks[key] == null) continue;
+                Container container = fromWords(chunks[key]);
+                if (container != null) {
+                    keys[count] = (char) key;
+                    containers[count++] = container;
+                }
+            }
+            chunks = new long[4][];
+            return count == 0 ? EMPTY : new RowBitmap(Arrays.copyOf(keys, count), Arrays.copyOf(containers, count));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Table items as positions into a row source (normally the dataset's row views).
+// Filtering hands over an int[] of matching rows, rows are looked up when the table
+// asks for them, and sorting only permutes the positions.
+public final class RowIndexList extends ObservableListBase<ObservableList<String>> implements RandomAccess {
+    private final List<ObservableList<String>> source;
+    private final ColumnarDataset dataset;
+    private final int[] unsortedRows;
+    private int[] rows;
+
+    public RowIndexList(List<ObservableList<String>> source, int[] rows) {
+        this(source, null, rows);
+    }
+
+    // Rows of the dataset, which also lets sortByColumns use its typed sort ranks
+    public RowIndexList(ColumnarDataset dataset, int[] rows) {
+        this(dataset.getRows(), dataset, rows);
+    }
+
+    private RowIndexList(List<ObservableList<String>> source, ColumnarDataset dataset, int[] rows) {
+        this.source = source;
+        this.dataset = dataset;
+        this.unsortedRows = rows;
+        this.rows = rows;
+    }
+
+    @Override
+    public ObservableList<String> get(int index) {
+        return source.get(rows[index]);
+    }
+
+    @Override
+    public int size() {
+        return rows.length;
+    }
+
+    public List<ObservableList<String>> getSource() {
+        return source;
+    }
+
+    // Null when the rows do not come straight from a dataset
+    public ColumnarDataset getDataset() {
+        return dataset;
+    }
+
+    // Ordered by dataset columns through RowSorter; no columns restores the filtered order
+    public void sortByColumns(int[] columns, boolean[] descending) {
+        setRows(columns.length == 0 ? unsortedRows : RowSorter.sort(dataset, unsortedRows, columns, descending));
+    }
+
+    // Position in the row source of the item at index
+    public int getSourceRow(int index) {
+        return rows[index];
+    }
+
+    // Stable sort by the comparator; null restores the filtered order
+    @Override
+    public void sort(Comparator<? super ObservableList<String>> comparator) {
+        int[] sorted;
+        if (comparator == null) {
+            sorted = unsortedRows;
+        } else {
+            Integer[] order = new Integer[unsortedRows.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = unsortedRows[i];
+            }
+            Arrays.sort(order, (a, b) -> comparator.compare(source.get(a), source.get(b)));
+            sorted = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                sorted[i] = order[i];
+            }
+        }
+        setRows(sorted);
+    }
+
+    private void setRows(int[] sorted) {
+        if (sorted == rows) return;
+
+        // Report the new order as a permutation of the old positions
+        int[] positionInSorted = new int[source.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            positionInSorted[sorted[i]] = i;
+        }
+        int[] permutation = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            permutation[i] = positionInSorted[rows[i]];
+        }
+
+        rows = sorted;
+        beginChange();
+        nextPermutation(0, permutation.length, permutation);
+        endChange();
+    }
+}
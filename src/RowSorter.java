@@ -0,0 +1,90 @@
+import java.util.Arrays;
+
+// Sorts table rows by dataset columns using per-column integer ranks instead of
+// comparing cell strings. Numeric columns rank by value, date columns by epoch day and
+// text columns by string order; empty cells rank lowest. Ranks are cached on the
+// column, so sorting a filtered row list is one packed long[] sort per sort column.
+public final class RowSorter {
+
+    private RowSorter() {
+    }
+
+    // The rows reordered by the columns, most significant first; equal rows keep
+    // their relative order
+    public static int[] sort(ColumnarDataset dataset, int[] rows, int[] columns, boolean[] descending) {
+        int[] order = rows.clone();
+        long[] packed = new long[order.length];
+
+        // Least significant column first; each pass is stable through the position bits
+        for (int c = columns.length - 1; c >= 0; c--) {
+            if (columns[c] >= dataset.getColumnCount()) continue;
+
+            int[] ranks = dataset.getColumn(columns[c]).getSortRanks();
+            for (int i = 0; i < order.length; i++) {
+                long rank = descending[c] ? Integer.MAX_VALUE - ranks[order[i]] : ranks[order[i]];
+                packed[i] = (rank << 32) | i;
+            }
+            Arrays.parallelSort(packed);
+
+            int[] sorted = new int[order.length];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = order[(int) packed[i]];
+            }
+            order = sorted;
+        }
+        return order;
+    }
+
+    static int[] buildRanks(ColumnarDataset.Column column) {
+        int[] ranks = new int[column.size()];
+        switch (column.getType()) {
+            case NUMERIC:
+                rankBySortIndex(column.getSortIndex(false), ranks);
+                break;
+            case DATE:
+                rankBySortIndex(column.getSortIndex(true), ranks);
+                break;
+            default:
+                rankByText(column, ranks);
+        }
+        return ranks;
+    }
+
+    // Rows missing from the sort index are the empty ones and keep rank 0
+    private static void rankBySortIndex(ColumnSortIndex index, int[] ranks) {
+        int rank = 0;
+        for (int i = 0; i < index.size(); i++) {
+            if (i == 0 || index.getKey(i) != index.getKey(i - 1)) {
+                rank++;
+            }
+            ranks[index.getRow(i)] = rank;
+        }
+    }
+
+    private static void rankByText(ColumnarDataset.Column column, int[] ranks) {
+        if (!(column instanceof ColumnarDataset.TextColumn)) return;
+
+        // Rank the dictionary once, then look every row's code up
+        ColumnarDataset.TextColumn textColumn = (ColumnarDataset.TextColumn) column;
+        int dictionarySize = textColumn.getDictionarySize();
+        Integer[] codes = new Integer[dictionarySize];
+        for (int code = 0; code < dictionarySize; code++) {
+            codes[code] = code;
+        }
+        Arrays.sort(codes, (a, b) -> textColumn.getDictionaryValue(a).compareTo(textColumn.getDictionaryValue(b)));
+
+        int[] rankByCode = new int[dictionarySize];
+        int rank = 0;
+        for (int i = 0; i < dictionarySize; i++) {
+            if (i == 0 || !textColumn.getDictionaryValue(codes[i]).equals(textColumn.getDictionaryValue(codes[i - 1]))) {
+                rank++;
+            }
+            rankByCode[codes[i]] = textColumn.getDictionaryValue(codes[i]).isEmpty() ? 0 : rank;
+        }
+
+        for (int row = 0; row < ranks.length; row++) {
+            int code = textColumn.getCode(row);
+            ranks[row] = code < 0 ? 0 : rankByCode[code];
+        }
+    }
+}
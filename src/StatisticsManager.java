@@ -72,9 +72,14 @@ public class StatisticsManager {
                 "-fx-background-radius: 8; -fx-spacing: 10;");
     }
 
-    public void setData(List<String> headers, List<ObservableList<String>> allRows) {
-        this.headers = new ArrayList<>(headers);
-        this.allRows = new ArrayList<>(allRows);
+    public void setData(DatasetHandle datasetHandle) {
+        datasetHandle.addListener(this::refreshFromDataset);
+        refreshFromDataset(datasetHandle);
+    }
+
+    private void refreshFromDataset(DatasetHandle datasetHandle) {
+        this.headers = datasetHandle.getHeaders();
+        this.allRows = datasetHandle.getRows();
 
         
         Platform.runLater(() -> {
@@ -0,0 +1,121 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Autocomplete lookups over a fixed list of values. Suggestions rank exact matches
+// first, then prefix matches, then the other values containing the text (all ignoring
+// case), each group in compareToIgnoreCase order. Prefix matches are a range of the
+// values sorted in lowercase, substring matches come from a trigram index, and only
+// the best few are kept in a bounded heap instead of sorting every match.
+public final class SuggestionIndex {
+    private final String[] values;
+    private final String[] lowerValues;
+    private final Integer[] sortedIds;
+    private final TrigramIndex trigramIndex;
+
+    private SuggestionIndex(String[] values, String[] lowerValues, TrigramIndex trigramIndex) {
+        this.values = values;
+        this.lowerValues = lowerValues;
+        this.trigramIndex = trigramIndex;
+        this.sortedIds = new Integer[values.length];
+        for (int id = 0; id < sortedIds.length; id++) {
+            sortedIds[id] = id;
+        }
+        Arrays.sort(sortedIds, Comparator.comparing(id -> lowerValues[id]));
+    }
+
+    public static SuggestionIndex of(List<String> items) {
+        String[] values = items.toArray(new String[0]);
+        String[] lowerValues = new String[values.length];
+        for (int id = 0; id < values.length; id++) {
+            lowerValues[id] = values[id].toLowerCase();
+        }
+        return new SuggestionIndex(values, lowerValues, TrigramIndex.build(lowerValues));
+    }
+
+    // A column's distinct values, reusing the lowercase values and trigram index its
+    // value index already has (see ColumnDictionary.getSuggestionIndex)
+    static SuggestionIndex of(ColumnValueIndex valueIndex) {
+        TrigramIndex trigramIndex = valueIndex.getTrigramIndex();
+        String[] values = new String[valueIndex.getValueCount()];
+        String[] lowerValues = new String[values.length];
+        for (int id = 0; id < values.length; id++) {
+            values[id] = valueIndex.getValue(id);
+            lowerValues[id] = trigramIndex.getLowerValue(id);
+        }
+        return new SuggestionIndex(values, lowerValues, trigramIndex);
+    }
+
+    // At most limit values containing the (trimmed, lowercase) search text, best first
+    public List<String> suggest(String searchText, int limit) {
+        if (limit <= 0) return Collections.emptyList();
+
+        Comparator<Integer> rank = Comparator.<Integer>comparingInt(id -> lowerValues[id].equals(searchText) ? 0 : 1)
+                .thenComparing(id -> values[id], String::compareToIgnoreCase)
+                .thenComparing(id -> values[id])
+                .thenComparingInt(id -> id);
+        // Worst kept suggestion on top, so it is the one pushed out
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, rank.reversed());
+
+        int prefixCount = 0;
+        for (int i = firstAtLeast(searchText); i < sortedIds.length && lowerValues[sortedIds[i]].startsWith(searchText); i++) {
+            offer(best, sortedIds[i], limit, rank);
+            prefixCount++;
+        }
+
+        // Any prefix match outranks every other substring match
+        if (best.size() < limit) {
+            Comparator<Integer> containsRank = Comparator.<Integer, String>comparing(id -> values[id], String::compareToIgnoreCase)
+                    .thenComparing(id -> values[id])
+                    .thenComparingInt(id -> id);
+            PriorityQueue<Integer> contains = new PriorityQueue<>(limit + 1, containsRank.reversed());
+            int wanted = limit - prefixCount;
+            for (int id : trigramIndex.findContaining(searchText)) {
+                if (!lowerValues[id].startsWith(searchText)) {
+                    offer(contains, id, wanted, containsRank);
+                }
+            }
+
+            List<String> suggestions = drain(best);
+            suggestions.addAll(drain(contains));
+            return suggestions;
+        }
+        return drain(best);
+    }
+
+    private static void offer(PriorityQueue<Integer> best, int id, int limit, Comparator<Integer> rank) {
+        if (best.size() < limit) {
+            best.add(id);
+        } else if (rank.compare(id, best.peek()) < 0) {
+            best.poll();
+            best.add(id);
+        }
+    }
+
+    private List<String> drain(PriorityQueue<Integer> queue) {
+        List<String> suggestions = new ArrayList<>(queue.size());
+        while (!queue.isEmpty()) {
+            suggestions.add(values[queue.poll()]);
+        }
+        Collections.reverse(suggestions);
+        return suggestions;
+    }
+
+    // Position in sortedIds of the first lowercase value not below the text
+    private int firstAtLeast(String text) {
+        int low = 0;
+        int high = sortedIds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lowerValues[sortedIds[mid]].compareTo(text) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
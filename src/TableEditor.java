@@ -618,11 +618,13 @@ public class TableEditor {
             List<String> allHeaders = tableController.getAllHeaders();
 
             List<String> newColumnDataForAllRows = new ArrayList<>();
+            // The condition is evaluated once over its whole column, not row by row
+            ConditionEvaluator condition = mathOperationRadio.isSelected() ? null : createConditionEvaluator(allHeaders);
 
             for (ObservableList<String> row : allRows) {
                 try {
                     
-                    String cellValue = generateCellValue(row, allHeaders);
+                    String cellValue = generateCellValue(row, allHeaders, condition);
                     newColumnDataForAllRows.add(cellValue);
                 } catch (Exception ex) {
                     newColumnDataForAllRows.add("ERROR");
@@ -653,11 +655,11 @@ public class TableEditor {
         }
     }
 
-    private String generateCellValue(ObservableList<String> row, List<String> rowHeaders) throws Exception {
+    private String generateCellValue(ObservableList<String> row, List<String> rowHeaders, ConditionEvaluator condition) throws Exception {
         if (mathOperationRadio.isSelected()) {
             return String.valueOf(calculateEnhancedMathResultForRow(row, rowHeaders));
         } else {
-            return generateConditionalCellValue(row, rowHeaders);
+            return generateConditionalCellValue(row, rowHeaders, condition);
         }
     }
 
@@ -736,35 +738,34 @@ public class TableEditor {
     }
 
     
-    private String generateConditionalCellValue(ObservableList<String> row, List<String> rowHeaders) throws Exception {
-        String column = conditionColumnCombo.getValue();
-        String operator = conditionOperatorCombo.getValue();
-        String value1 = conditionValueField.getText().trim();
-        String value2 = conditionValueField2.getText().trim();
-
-        if (column == null || operator == null) {
+    private String generateConditionalCellValue(ObservableList<String> row, List<String> rowHeaders, ConditionEvaluator condition) throws Exception {
+        if (condition == null) {
             throw new Exception("Please select both column and operator for the condition.");
         }
 
-        
-        int columnIndex = rowHeaders.indexOf(column);
-        if (columnIndex == -1) {
-            throw new Exception("Column '" + column + "' not found in headers: " + rowHeaders);
+        if (condition.columnIndex == -1) {
+            throw new Exception("Column '" + condition.column + "' not found in headers: " + rowHeaders);
         }
 
-        if (columnIndex >= row.size()) {
+        if (condition.columnIndex >= row.size()) {
             throw new Exception("Column index out of bounds");
         }
 
-        String rowValue = row.get(columnIndex);
-        if (rowValue == null || rowValue.trim().equalsIgnoreCase("null")) {
-            rowValue = "";
-        } else {
-            rowValue = rowValue.trim();
+        return getConditionalOutputForRow(condition.test(row), row, rowHeaders);
+    }
+
+    // The condition currently set in the editor, or null while column or operator is missing
+    private ConditionEvaluator createConditionEvaluator(List<String> rowHeaders) {
+        String column = conditionColumnCombo.getValue();
+        String operator = conditionOperatorCombo.getValue();
+        if (column == null || operator == null) {
+            return null;
         }
 
-        boolean conditionResult = FilterOperations.applyOperator(operator, rowValue, value1, value2);
-        return getConditionalOutputForRow(conditionResult, row, rowHeaders);
+        String value1 = conditionValueField.getText().trim();
+        String value2 = conditionValueField2.getText().trim();
+        return new ConditionEvaluator(column, rowHeaders.indexOf(column),
+                FilterOperations.Operation.of(operator, value1, value2, false));
     }
 
     
@@ -1033,10 +1034,7 @@ public class TableEditor {
         }
 
         List<String> result = new ArrayList<>();
-
-        System.out.println("DEBUG Conditional: Column=" + column + ", Index=" + columnIndex +
-                ", Operator=" + operator);
-        System.out.println("DEBUG: Processing " + filteredRows.size() + " filtered rows");
+        ConditionEvaluator condition = createConditionEvaluator(headers);
 
         for (int i = 0; i < filteredRows.size(); i++) {
             ObservableList<String> row = filteredRows.get(i);
@@ -1049,23 +1047,8 @@ public class TableEditor {
                 continue;
             }
 
-            String rowValue = row.get(columnIndex);
-            if (rowValue == null || rowValue.trim().equalsIgnoreCase("null")) {
-                rowValue = "";
-            } else {
-                rowValue = rowValue.trim();
-            }
-
             try {
-                boolean conditionResult = FilterOperations.applyOperator(operator, rowValue, value1, value2);
-                String output = getConditionalOutput(conditionResult, row);
-                result.add(output);
-
-                
-                if (i < 3) {
-                    System.out.println("DEBUG Row " + i + ": Value='" + rowValue +
-                            "', Condition=" + conditionResult + ", Output='" + output + "'");
-                }
+                result.add(getConditionalOutput(condition.test(row), row));
             } catch (Exception ex) {
                 System.err.println("ERROR processing row " + i + ": " + ex.getMessage());
                 result.add("ERROR");
@@ -1074,6 +1057,62 @@ public class TableEditor {
 
         return result;
     }
+
+    private static boolean isSameColumn(ColumnarDataset dataset, int columnIndex, String column) {
+        return columnIndex < dataset.getColumnCount() && dataset.getHeaders().get(columnIndex).equals(column);
+    }
+
+    // Rows of the column where the condition holds, through the column's indexes. Cells
+    // reading "null" are empty for the condition, so they are taken out first and only
+    // put back when an empty value matches.
+    private static RowBitmap conditionRows(ColumnarDataset.Column column, FilterOperations.Operation operation) {
+        ColumnValueIndex index = column.getValueIndex();
+        RowBitmap nullRows = RowBitmap.empty();
+        for (int id = 0; id < index.getValueCount(); id++) {
+            if (index.getValue(id).equalsIgnoreCase("null")) {
+                nullRows = nullRows.or(index.getRowsForValue(id));
+            }
+        }
+
+        RowBitmap rows = FilterOperations.evaluate(column, operation);
+        if (nullRows.isEmpty()) {
+            return rows;
+        }
+        rows = rows.andNot(nullRows);
+        return operation.test("") ? rows.or(nullRows) : rows;
+    }
+
+    // One condition with its operands parsed once. Rows of the dataset are answered from
+    // a single evaluation of the whole column; any other row tests its own value.
+    private static final class ConditionEvaluator {
+        private final String column;
+        private final int columnIndex;
+        private final FilterOperations.Operation operation;
+        private ColumnarDataset dataset;
+        private RowBitmap matchingRows;
+
+        ConditionEvaluator(String column, int columnIndex, FilterOperations.Operation operation) {
+            this.column = column;
+            this.columnIndex = columnIndex;
+            this.operation = operation;
+        }
+
+        boolean test(ObservableList<String> row) {
+            if (row instanceof ColumnarDataset.RowView) {
+                ColumnarDataset.RowView view = (ColumnarDataset.RowView) row;
+                if (isSameColumn(view.getDataset(), columnIndex, column)) {
+                    if (view.getDataset() != dataset) {
+                        dataset = view.getDataset();
+                        matchingRows = conditionRows(dataset.getColumn(columnIndex), operation);
+                    }
+                    return matchingRows.contains(view.getRowIndex());
+                }
+            }
+
+            String rowValue = row.get(columnIndex);
+            return operation.test(rowValue == null || rowValue.trim().equalsIgnoreCase("null") ? "" : rowValue.trim());
+        }
+    }
     private void debugDataStructure() {
         System.out.println("=== DEBUG DATA STRUCTURE ===");
         System.out.println("Headers (" + headers.size() + "): " + headers);
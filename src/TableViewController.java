@@ -1,14 +1,17 @@
-import javafx.beans.property.SimpleStringProperty;
-import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+import javafx.concurrent.Task;
 import javafx.scene.control.*;
 import java.util.*;
-import java.util.function.Predicate;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 import javafx.scene.layout.VBox;
 import javafx.scene.layout.Priority;
 
 public class TableViewController {
+    private DatasetHandle datasetHandle;
     private List<String> headers = new ArrayList<>();
     private List<ObservableList<String>> allRows = new ArrayList<>();
     private TableView<ObservableList<String>> tableView = new TableView<>();
@@ -27,6 +30,10 @@ public class TableViewController {
     }
     private ScrollPane tableScrollPane;
     private FilterManager filterManager;
+    private Task<int[]> filterTask;
+    private String columnFilterInput = "";
+    // Headers the table columns were created for; columns are only rebuilt when they change
+    private List<String> columnHeaders;
 
     public TableViewController() {
         setupTableView();
@@ -34,16 +41,16 @@ public class TableViewController {
     
 
     public List<String> getAllHeaders() {
-        return new ArrayList<>(headers); 
+        return headers; 
     }
 
     public List<ObservableList<String>> getAllRows() {
-        return new ArrayList<>(allRows); 
+        return allRows; 
     }
     
     public List<String> getVisibleHeaders() {
         List<String> visibleHeaders = new ArrayList<>();
-        for (TableColumn<ObservableList<String>, ?> col : tableView.getColumns()) {
+        for (TableColumn<ObservableList<String>, ?> col : tableView.getVisibleLeafColumns()) {
             visibleHeaders.add(col.getText());
         }
         return visibleHeaders;
@@ -56,27 +63,8 @@ public class TableViewController {
 
     public void addNewColumn(String columnName, List<String> columnData) {
         
-        headers.add(columnName);
-
-        
-        for (int i = 0; i < allRows.size() && i < columnData.size(); i++) {
-            allRows.get(i).add(columnData.get(i));
-        }
-
-        
-        for (int i = allRows.size(); i < columnData.size(); i++) {
-            ObservableList<String> newRow = FXCollections.observableArrayList();
-            
-            for (int j = 0; j < headers.size() - 1; j++) {
-                newRow.add("");
-            }
-            
-            newRow.add(columnData.get(i));
-            allRows.add(newRow);
-        }
-
-        
-        refreshTable();
+        // Listeners (including this controller) pick up the new version
+        datasetHandle.addColumn(columnName, columnData);
     }
 
     public TableView<ObservableList<String>> getTableView() {
@@ -90,6 +78,7 @@ public class TableViewController {
     private void setupTableView() {
         tableView = new TableView<>();
         tableView.setColumnResizePolicy(TableView.UNCONSTRAINED_RESIZE_POLICY);
+        tableView.setSortPolicy(TableViewController::sortRows);
 
         tableScrollPane = new ScrollPane(tableView);
         tableScrollPane.setFitToWidth(true);
@@ -110,50 +99,156 @@ public class TableViewController {
         tableScrollPane.setStyle("-fx-background: white; -fx-background-color: white;");
     }
 
-    public TableView<ObservableList<String>> createClonedTableView() {
-        TableView<ObservableList<String>> clone = new TableView<>();
-        clone.setColumnResizePolicy(TableView.UNCONSTRAINED_RESIZE_POLICY);
+    // Row index items sort their indices in place of the default setAll of a sorted copy.
+    // Columns tagged with their dataset column index (user data) sort by typed ranks.
+    static Boolean sortRows(TableView<ObservableList<String>> table) {
+        if (!(table.getItems() instanceof RowIndexList)) {
+            return TableView.DEFAULT_SORT_POLICY.call(table);
+        }
 
-        for (TableColumn<ObservableList<String>, ?> col : tableView.getColumns()) {
-            TableColumn<ObservableList<String>, String> newCol = new TableColumn<>(col.getText());
-            final int colIndex = tableView.getColumns().indexOf(col);
-            newCol.setCellValueFactory(param -> {
-                ObservableList<String> row = param.getValue();
-                return new SimpleStringProperty(colIndex < row.size() ? row.get(colIndex) : "");
-            });
-            newCol.setPrefWidth(150);
-            clone.getColumns().add(newCol);
+        RowIndexList items = (RowIndexList) table.getItems();
+        List<TableColumn<ObservableList<String>, ?>> sortOrder = table.getSortOrder();
+        int[] columns = new int[sortOrder.size()];
+        boolean[] descending = new boolean[sortOrder.size()];
+        boolean typed = items.getDataset() != null;
+        for (int i = 0; i < columns.length && typed; i++) {
+            TableColumn<ObservableList<String>, ?> column = sortOrder.get(i);
+            typed = column.getUserData() instanceof Integer && column.getComparator() == TableColumn.DEFAULT_COMPARATOR;
+            columns[i] = typed ? (Integer) column.getUserData() : 0;
+            descending[i] = column.getSortType() == TableColumn.SortType.DESCENDING;
         }
-        for (ObservableList<String> row : tableView.getItems()) {
-            clone.getItems().add(FXCollections.observableArrayList(row));
+
+        if (typed) {
+            items.sortByColumns(columns, descending);
+        } else {
+            items.sort(sortOrder.isEmpty() ? null : table.getComparator());
         }
-        return clone;
+        return true;
     }
 
-    public void setData(List<String> headers, List<ObservableList<String>> allRows) {
-        this.headers = new ArrayList<>(headers);
-        this.allRows = new ArrayList<>(allRows);
-        applyFilters("", row -> true); 
+    // A second view of the same table for the fullscreen window. It shares the items
+    // list and the column cell value factories, so nothing is copied, and follows the
+    // main table as filters rebuild its items and columns. Sorting either view reorders
+    // the shared items.
+    public TableView<ObservableList<String>> createSharedTableView() {
+        TableView<ObservableList<String>> shared = new TableView<>();
+        shared.setColumnResizePolicy(TableView.UNCONSTRAINED_RESIZE_POLICY);
+        shared.setSortPolicy(TableViewController::sortRows);
+        shared.itemsProperty().bind(tableView.itemsProperty());
+
+        copyColumns(shared);
+        ListChangeListener<TableColumn<ObservableList<String>, ?>> columnsListener = change -> copyColumns(shared);
+        // Held by the shared view, so the main table stops updating it once it is closed
+        shared.getProperties().put("columnsListener", columnsListener);
+        tableView.getColumns().addListener(new WeakListChangeListener<>(columnsListener));
+        return shared;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void copyColumns(TableView<ObservableList<String>> shared) {
+        List<TableColumn<ObservableList<String>, ?>> columns = new ArrayList<>();
+        for (TableColumn<ObservableList<String>, ?> col : tableView.getColumns()) {
+            TableColumn<ObservableList<String>, String> source = (TableColumn<ObservableList<String>, String>) col;
+            TableColumn<ObservableList<String>, String> column = new TableColumn<>(source.getText());
+            column.setCellValueFactory(source.getCellValueFactory());
+            column.setUserData(source.getUserData());
+            column.visibleProperty().bind(source.visibleProperty());
+            column.setPrefWidth(150);
+            columns.add(column);
+        }
+        shared.getSortOrder().clear();
+        shared.getColumns().setAll(columns);
+    }
+
+    public void setData(DatasetHandle datasetHandle) {
+        this.datasetHandle = datasetHandle;
+        this.headers = datasetHandle.getHeaders();
+        this.allRows = datasetHandle.getRows();
+        datasetHandle.addListener(handle -> {
+            this.headers = handle.getHeaders();
+            this.allRows = handle.getRows();
+            refreshTable();
+        });
+        applyFilters("", (dataset, cancelled) -> RowBitmap.full(dataset.getRowCount()));
     }
 
     public void setFilterManager(FilterManager filterManager) {
         this.filterManager = filterManager;
     }
 
-    public void applyFilters(String columnFilterInput, Predicate<ObservableList<String>> rowFilter) {
+    // Rows are matched on a background thread as a bitmap (normally FilterManager's cached
+    // result), and only its row positions are published to the table. A newer call
+    // cancels the evaluation still running for an older one; matchingRows is handed the
+    // task's cancellation so it can stop part way.
+    public void applyFilters(String columnFilterInput,
+                             BiFunction<ColumnarDataset, BooleanSupplier, RowBitmap> matchingRows) {
         if (headers.isEmpty()) return;
 
-        tableView.getColumns().clear();
-        tableView.getItems().clear();
+        if (filterTask != null) {
+            filterTask.cancel();
+        }
+        applyColumnFilter(columnFilterInput);
 
-        
-        List<Integer> includedIndices = getIncludedColumnIndices(columnFilterInput);
+        ColumnarDataset dataset = datasetHandle.getDataset();
 
-        
-        createTableColumns(includedIndices);
+        Task<int[]> task = new Task<int[]>() {
+            @Override
+            protected int[] call() {
+                return matchingRows.apply(dataset, this::isCancelled).toArray();
+            }
 
-        
-        addFilteredRows(rowFilter, includedIndices);
+            @Override
+            protected void succeeded() {
+                if (filterTask != this) return;
+                filterTask = null;
+
+                ensureColumns();
+                tableView.setItems(new RowIndexList(dataset, getValue()));
+                tableView.sort();
+            }
+
+            @Override
+            protected void failed() {
+                if (filterTask == this) {
+                    filterTask = null;
+                }
+                System.out.println("Filtering failed: " + getException());
+                if (getException() != null) {
+                    getException().printStackTrace();
+                }
+            }
+        };
+        filterTask = task;
+
+        Thread thread = new Thread(task, "table-filter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Shows the columns whose header contains one of the comma-separated names (all of
+    // them for blank input). Only toggles column visibility, so the rows are untouched.
+    public void applyColumnFilter(String columnFilterInput) {
+        this.columnFilterInput = columnFilterInput != null ? columnFilterInput : "";
+        if (headers.isEmpty()) return;
+
+        ensureColumns();
+        boolean[] included = new boolean[headers.size()];
+        for (int index : getIncludedColumnIndices(this.columnFilterInput)) {
+            included[index] = true;
+        }
+        for (TableColumn<ObservableList<String>, ?> column : tableView.getColumns()) {
+            int sourceIndex = (Integer) column.getUserData();
+            column.setVisible(sourceIndex < included.length && included[sourceIndex]);
+        }
+    }
+
+    private void ensureColumns() {
+        if (columnHeaders == headers) return;
+
+        tableView.getColumns().clear();
+        createTableColumns();
+        columnHeaders = headers;
+        applyColumnFilter(columnFilterInput);
     }
 
     private List<Integer> getIncludedColumnIndices(String columnFilterInput) {
@@ -186,22 +281,18 @@ public class TableViewController {
         return includedIndices;
     }
 
-    private void createTableColumns(List<Integer> includedIndices) {
-        for (int i = 0; i < includedIndices.size(); i++) {
-            int originalIndex = includedIndices.get(i);
-            String headerText = headers.get(originalIndex);
+    // One column per dataset column, tagged with its index; visibility is set separately
+    private void createTableColumns() {
+        for (int i = 0; i < headers.size(); i++) {
+            String headerText = headers.get(i);
 
             TableColumn<ObservableList<String>, String> column = new TableColumn<>(headerText);
             final int columnIndex = i;
 
-            column.setCellValueFactory(param -> {
-                ObservableList<String> row = param.getValue();
-                if (columnIndex < row.size()) {
-                    return new SimpleStringProperty(row.get(columnIndex));
-                } else {
-                    return new SimpleStringProperty("");
-                }
-            });
+            // Items are whole source rows, so cells read the source column directly
+            CellValue.ColumnCache cellValues = new CellValue.ColumnCache(columnIndex);
+            column.setCellValueFactory(param -> cellValues.get(param.getValue()));
+            column.setUserData(columnIndex);
 
             column.setPrefWidth(150);
             column.setStyle("-fx-background-color: #f0f0f0; -fx-text-fill: #111;");
@@ -210,29 +301,9 @@ public class TableViewController {
         }
     }
 
-    private void addFilteredRows(Predicate<ObservableList<String>> rowFilter, List<Integer> includedIndices) {
-        for (ObservableList<String> originalRow : allRows) {
-            if (rowFilter.test(originalRow)) {
-                ObservableList<String> filteredRow = FXCollections.observableArrayList();
-
-                for (int index : includedIndices) {
-                    if (index < originalRow.size()) {
-                        filteredRow.add(originalRow.get(index));
-                    } else {
-                        filteredRow.add("");
-                    }
-                }
-
-                tableView.getItems().add(filteredRow);
-            }
-        }
-    }
-
     public void refreshTable() {
         if (filterManager != null) {
-            Predicate<ObservableList<String>> rowFilter = row ->
-                    filterManager.rowMatchesFilters(row, headers);
-            applyFilters("", rowFilter);
+            applyFilters(columnFilterInput, filterManager::getMatchingRows);
         }
     }
 }
@@ -0,0 +1,108 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Trigram postings over a column's distinct values (ColumnValueIndex ids), plus the
+// lowercase form of every value. A substring query intersects the postings of its
+// trigrams and only verifies the surviving candidates.
+public final class TrigramIndex {
+    private final String[] lowerValues;
+    private final Map<Long, int[]> postings;
+
+    private TrigramIndex(String[] lowerValues, Map<Long, int[]> postings) {
+        this.lowerValues = lowerValues;
+        this.postings = postings;
+    }
+
+    static TrigramIndex build(ColumnValueIndex valueIndex) {
+        String[] lowerValues = new String[valueIndex.getValueCount()];
+        for (int id = 0; id < lowerValues.length; id++) {
+            lowerValues[id] = valueIndex.getValue(id).toLowerCase();
+        }
+        return build(lowerValues);
+    }
+
+    // Over any lowercase strings; ids are their positions in the array
+    static TrigramIndex build(String[] lowerValues) {
+        Map<Long, int[]> lists = new HashMap<>();
+        Map<Long, Integer> sizes = new HashMap<>();
+
+        for (int id = 0; id < lowerValues.length; id++) {
+            String lower = lowerValues[id];
+
+            for (int i = 0; i + 3 <= lower.length(); i++) {
+                Long trigram = trigram(lower, i);
+                int[] list = lists.get(trigram);
+                int size = list == null ? 0 : sizes.get(trigram);
+                if (size > 0 && list[size - 1] == id) continue; // repeated within this value
+
+                if (list == null) {
+                    list = new int[4];
+                } else if (size == list.length) {
+                    list = Arrays.copyOf(list, size * 2);
+                }
+                list[size] = id;
+                lists.put(trigram, list);
+                sizes.put(trigram, size + 1);
+            }
+        }
+
+        Map<Long, int[]> postings = new HashMap<>(lists.size() * 2);
+        for (Map.Entry<Long, int[]> entry : lists.entrySet()) {
+            postings.put(entry.getKey(), Arrays.copyOf(entry.getValue(), sizes.get(entry.getKey())));
+        }
+        return new TrigramIndex(lowerValues, postings);
+    }
+
+    private static long trigram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+
+    public String getLowerValue(int id) {
+        return lowerValues[id];
+    }
+
+    // Ids of the distinct values containing the (already lowercase) text, ascending
+    public int[] findContaining(String lowerText) {
+        int[] candidates = null;
+
+        for (int i = 0; i + 3 <= lowerText.length(); i++) {
+            int[] list = postings.get(trigram(lowerText, i));
+            if (list == null) return new int[0];
+
+            if (candidates == null) {
+                candidates = list;
+            } else {
+                candidates = list.length < candidates.length ? intersect(list, candidates) : intersect(candidates, list);
+            }
+            if (candidates.length == 0) return candidates;
+        }
+
+        int[] matches = new int[candidates != null ? candidates.length : lowerValues.length];
+        int count = 0;
+        if (candidates == null) {
+            for (int id = 0; id < lowerValues.length; id++) {
+                if (lowerValues[id].contains(lowerText)) matches[count++] = id;
+            }
+        } else if (lowerText.length() == 3) {
+            return candidates.clone(); // the trigram is the whole text, nothing to verify
+        } else {
+            for (int id : candidates) {
+                if (lowerValues[id].contains(lowerText)) matches[count++] = id;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    private static int[] intersect(int[] small, int[] large) {
+        int[] result = new int[small.length];
+        int count = 0;
+        int j = 0;
+        for (int value : small) {
+            while (j < large.length && large[j] < value) j++;
+            if (j == large.length) break;
+            if (large[j] == value) result[count++] = value;
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,157 @@
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.Date;
+
+// Date and number parsing for the comparison operators. A value is parsed once to an
+// epoch day or a double; NO_DATE and NaN stand for "not a date" / "not a number", so
+// comparing never goes through exceptions or a new SimpleDateFormat per row.
+public final class TypedValues {
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = ThreadLocal.withInitial(() -> {
+        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
+        sdf.setLenient(false);
+        return sdf;
+    });
+
+    public enum Comparison {
+        LESS_THAN("LessThan"),
+        LESS_OR_EQUAL("LessOrEqual"),
+        GREATER_THAN("GreaterThan"),
+        GREATER_OR_EQUAL("GreaterOrEqual");
+
+        private final String operator;
+
+        Comparison(String operator) {
+            this.operator = operator;
+        }
+
+        public String getOperator() {
+            return operator;
+        }
+
+        public static Comparison fromOperator(String operator) {
+            for (Comparison comparison : values()) {
+                if (comparison.operator.equals(operator)) {
+                    return comparison;
+                }
+            }
+            return null;
+        }
+
+        public boolean test(int value, int operand) {
+            switch (this) {
+                case LESS_THAN: return value < operand;
+                case LESS_OR_EQUAL: return value <= operand;
+                case GREATER_THAN: return value > operand;
+                default: return value >= operand;
+            }
+        }
+
+        public boolean test(double value, double operand) {
+            switch (this) {
+                case LESS_THAN: return value < operand;
+                case LESS_OR_EQUAL: return value <= operand;
+                case GREATER_THAN: return value > operand;
+                default: return value >= operand;
+            }
+        }
+    }
+
+    // A filter operand with both typed forms worked out up front
+    public static final class Operand {
+        private final String text;
+        private final int date;
+        private final double number;
+
+        private Operand(String text) {
+            this.text = text;
+            this.date = parseDate(text);
+            this.number = parseNumber(text);
+        }
+
+        public static Operand of(String text) {
+            return new Operand(text != null ? text : "");
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public int getDate() {
+            return date;
+        }
+
+        public double getNumber() {
+            return number;
+        }
+
+        public boolean isDate() {
+            return date != NO_DATE;
+        }
+
+        public boolean isNumber() {
+            return !Double.isNaN(number);
+        }
+    }
+
+    private TypedValues() {
+    }
+
+    // Accepts exactly what SimpleDateFormat("dd/MM/yyyy").parse() accepts with lenient off
+    public static int parseDate(String value) {
+        if (value == null || value.isEmpty() || value.indexOf('/') < 0) {
+            return NO_DATE;
+        }
+
+        SimpleDateFormat sdf = DATE_FORMAT.get();
+        Date date = sdf.parse(value, new ParsePosition(0));
+        if (date == null) {
+            return NO_DATE;
+        }
+
+        Calendar calendar = sdf.getCalendar();
+        long epochDay = LocalDate.of(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH)).toEpochDay();
+        return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE, epochDay));
+    }
+
+    // Double.parseDouble(), with NaN instead of an exception for obvious non-numbers
+    public static double parseNumber(String value) {
+        if (value == null || !startsLikeNumber(value)) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static boolean startsLikeNumber(String value) {
+        int i = 0;
+        while (i < value.length() && value.charAt(i) <= ' ') i++;
+        if (i < value.length() && (value.charAt(i) == '-' || value.charAt(i) == '+')) i++;
+        if (i >= value.length()) return false;
+
+        char c = value.charAt(i);
+        return (c >= '0' && c <= '9') || c == '.' || c == 'N' || c == 'I';
+    }
+
+    // Dates when both sides are dates, otherwise numbers, otherwise no match
+    public static boolean compare(Comparison comparison, int rowDate, double rowNumber, Operand operand) {
+        if (rowDate != NO_DATE && operand.isDate()) {
+            return comparison.test(rowDate, operand.date);
+        }
+        return comparison.test(rowNumber, operand.number);
+    }
+
+    public static boolean between(int rowDate, double rowNumber, Operand from, Operand to) {
+        if (rowDate != NO_DATE && from.isDate() && to.isDate()) {
+            return rowDate >= from.date && rowDate <= to.date;
+        }
+        return rowNumber >= from.number && rowNumber <= to.number;
+    }
+}
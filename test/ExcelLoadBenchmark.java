@@ -0,0 +1,139 @@
+import javafx.collections.ObservableList;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+// Side-by-side load of a generated workbook through both ExcelDataManager load modes.
+// Kept in the test source root so it is not packaged with the application.
+// Usage: java ExcelLoadBenchmark [rows] [output.xlsx]
+public class ExcelLoadBenchmark {
+    private static final String[] CITIES = {"Paris", "Lyon", "Marseille", "Toulouse", "Nantes", "Lille", "Rennes"};
+    private static final String[] STATUSES = {"Open", "Closed", "Pending", "Cancelled"};
+
+    public static void main(String[] args) throws Exception {
+        int rowCount = args.length > 0 ? Integer.parseInt(args[0]) : 300_000;
+        File file = args.length > 1 ? new File(args[1]) : File.createTempFile("xed-bench-", ".xlsx");
+        boolean deleteAfter = args.length <= 1;
+
+        System.out.println("Generating " + rowCount + " rows into " + file.getAbsolutePath());
+        long start = System.nanoTime();
+        generateWorkbook(file, rowCount);
+        System.out.printf("Generated in %d ms (%d KB)%n", (System.nanoTime() - start) / 1_000_000, file.length() / 1024);
+
+        try {
+            ExcelDataManager workbookManager = load(file, ExcelDataManager.LoadMode.WORKBOOK);
+            ExcelDataManager streamingManager = load(file, ExcelDataManager.LoadMode.STREAMING);
+
+            boolean sameHeaders = workbookManager.getHeaders().equals(streamingManager.getHeaders());
+            boolean sameRows = sameRows(workbookManager.getAllRows(), streamingManager.getAllRows());
+            System.out.println("Identical headers: " + sameHeaders + ", identical rows: " + sameRows);
+        } finally {
+            if (deleteAfter) {
+                file.delete();
+            }
+        }
+    }
+
+    private static ExcelDataManager load(File file, ExcelDataManager.LoadMode mode) throws Exception {
+        ExcelDataManager manager = new ExcelDataManager();
+        manager.setLoadMode(mode);
+
+        System.gc();
+        resetHeapPeaks();
+        long baseline = usedHeap();
+        long start = System.nanoTime();
+
+        manager.loadExcelFile(file);
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        long peakMb = (peakHeap() - baseline) / (1024 * 1024);
+        System.out.printf("%-10s %8d ms   peak heap +%6d MB   dataset ~%d MB   %s%n", mode, elapsedMs, peakMb,
+                manager.getDataset().estimateHeapBytes() / (1024 * 1024), manager.getDataInfo());
+        return manager;
+    }
+
+    private static void generateWorkbook(File file, int rowCount) throws Exception {
+        Random random = new Random(42);
+        Calendar calendar = Calendar.getInstance();
+
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(200);
+             FileOutputStream out = new FileOutputStream(file)) {
+            Sheet sheet = workbook.createSheet("Data");
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("dd/mm/yyyy"));
+
+            String[] headers = {"ID", "Client", "City", "Status", "Amount", "Quantity", "Order Date", "Notes"};
+            Row headerRow = sheet.createRow(0);
+            for (int i = 0; i < headers.length; i++) {
+                headerRow.createCell(i).setCellValue(headers[i]);
+            }
+
+            for (int r = 1; r <= rowCount; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(r);
+                row.createCell(1).setCellValue("Client " + random.nextInt(5000));
+                row.createCell(2).setCellValue(CITIES[random.nextInt(CITIES.length)]);
+                row.createCell(3).setCellValue(STATUSES[random.nextInt(STATUSES.length)]);
+                row.createCell(4).setCellValue(Math.round(random.nextDouble() * 1_000_000) / 100.0);
+                row.createCell(5).setCellValue(random.nextInt(100));
+
+                calendar.set(2020 + random.nextInt(5), random.nextInt(12), 1 + random.nextInt(28), 0, 0, 0);
+                Cell dateCell = row.createCell(6);
+                dateCell.setCellValue(calendar.getTime());
+                dateCell.setCellStyle(dateStyle);
+
+                if (random.nextInt(4) == 0) {
+                    row.createCell(7).setCellValue("  note " + random.nextInt(100) + "  ");
+                }
+            }
+
+            workbook.write(out);
+            workbook.dispose();
+        }
+    }
+
+    private static boolean sameRows(List<ObservableList<String>> a, List<ObservableList<String>> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).equals(b.get(i))) {
+                System.out.println("First difference at data row " + (i + 1) + ": " + a.get(i) + " vs " + b.get(i));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void resetHeapPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.Arrays;
+import java.util.List;
+
+// Checks for the FilterExpression parser: precedence, NOT, quoting, headers starting
+// with "(" and error positions. Run with java FilterExpressionTest; exits non-zero on
+// the first failure.
+public class FilterExpressionTest {
+    private static final List<String> HEADERS = Arrays.asList("City", "Age", "Note", "(Total)");
+
+    private static final List<String> PARIS_40 = Arrays.asList("Paris", "40", "a (b) c", "5");
+    private static final List<String> LYON_20 = Arrays.asList("Lyon", "20", "AND", "12");
+    private static final List<String> NICE_35 = Arrays.asList("Nice", "35", "", "");
+
+    public static void main(String[] args) {
+        andBindsTighterThanOr();
+        parenthesesOverridePrecedence();
+        notNegatesGroupsAndQuotedLeaves();
+        notInsideLeafStaysACondition();
+        quotedLeavesKeepParenthesesAndKeywords();
+        parenthesizedHeadersAreLeaves();
+        syntaxErrorsReportPositions();
+        validateReportsUnknownColumnsAndOperators();
+        System.out.println("FilterExpressionTest: all checks passed");
+    }
+
+    private static void andBindsTighterThanOr() {
+        // City Equals Lyon OR (Age GreaterThan 30 AND City Equals Paris)
+        CompiledFilter filter = compile("(City Equals Lyon OR Age GreaterThan 30 AND City Equals Paris)");
+        check(filter.test(LYON_20), "OR branch matches Lyon");
+        check(filter.test(PARIS_40), "AND branch matches Paris over 30");
+        check(!filter.test(NICE_35), "Nice is over 30 but not Paris");
+    }
+
+    private static void parenthesesOverridePrecedence() {
+        CompiledFilter filter = compile("((City Equals Lyon OR Age GreaterThan 30) AND City Equals Paris)");
+        check(!filter.test(LYON_20), "Lyon fails the outer AND");
+        check(filter.test(PARIS_40), "Paris over 30 matches");
+        check(!filter.test(NICE_35), "Nice fails the outer AND");
+    }
+
+    private static void notNegatesGroupsAndQuotedLeaves() {
+        CompiledFilter group = compile("NOT (City Equals Paris OR City Equals Lyon)");
+        check(!group.test(PARIS_40) && !group.test(LYON_20) && group.test(NICE_35), "NOT negates the whole group");
+
+        CompiledFilter quoted = compile("(NOT \"City Equals Paris\" AND Age LessThan 38)");
+        check(!quoted.test(PARIS_40) && quoted.test(LYON_20) && quoted.test(NICE_35), "NOT negates a quoted leaf");
+
+        CompiledFilter twice = compile("NOT (NOT (City Equals Paris))");
+        check(twice.test(PARIS_40) && !twice.test(LYON_20), "double NOT cancels out");
+    }
+
+    private static void notInsideLeafStaysACondition() {
+        CompiledFilter filter = compile("(NOT City Equals Paris AND Age GreaterThan 30)");
+        check(!filter.test(PARIS_40) && !filter.test(LYON_20) && filter.test(NICE_35), "leading NOT belongs to the leaf");
+    }
+
+    private static void quotedLeavesKeepParenthesesAndKeywords() {
+        CompiledFilter parens = compile("(\"Note Equals a (b) c\" OR City Equals Nice)");
+        check(parens.test(PARIS_40) && !parens.test(LYON_20) && parens.test(NICE_35), "quoted value keeps its parentheses");
+
+        CompiledFilter keyword = compile("(\"Note Equals AND\")");
+        check(!keyword.test(PARIS_40) && keyword.test(LYON_20), "quoted AND is a value, not an operator");
+    }
+
+    private static void parenthesizedHeadersAreLeaves() {
+        check(!FilterExpression.isExpression("(Total) GreaterThan 5", HEADERS), "(Total) filter is a plain condition");
+        check(!FilterExpression.isExpression("NOT (Total) GreaterThan 5", HEADERS), "negated (Total) filter too");
+        check(FilterExpression.isExpression("(Total GreaterThan 5)", HEADERS), "other parentheses start an expression");
+
+        CompiledFilter leaf = FilterCompiler.compileFilter("(Total) GreaterThan 10", HEADERS);
+        check(!leaf.test(PARIS_40) && leaf.test(LYON_20), "(Total) leaf compares the column");
+
+        CompiledFilter nested = compile("((Total) GreaterThan 10 OR City Equals Nice)");
+        check(!nested.test(PARIS_40) && nested.test(LYON_20) && nested.test(NICE_35), "(Total) inside an expression");
+    }
+
+    private static void syntaxErrorsReportPositions() {
+        checkError("(City Equals Paris", "Missing ')' at position 19");
+        checkError("(City Equals Paris))", "Unexpected ')' at position 20");
+        checkError("(City Equals Paris AND)", "Unexpected ')' at position 23");
+        checkError("(City Equals Paris OR", "Expression ends where a filter was expected at position 22");
+        checkError("(\"City Equals Paris)", "Unclosed quote at position 2");
+        checkError("()", "Unexpected ')' at position 2");
+    }
+
+    private static void validateReportsUnknownColumnsAndOperators() {
+        check(FilterExpression.validate("(City Equals Paris AND (Total) LessThan 3)", HEADERS) == null,
+                "valid expression passes");
+        checkEquals(FilterExpression.validate("(Cty Equals Paris OR Age IsEmpty)", HEADERS),
+                "Unknown column or operator in 'Cty Equals Paris' at position 2");
+        checkEquals(FilterExpression.validate("(City Equals Paris AND Age Is 3)", HEADERS),
+                "Unknown column or operator in 'Age Is 3' at position 24");
+        checkEquals(FilterExpression.validate("NOT (\"Cty Has x\")", HEADERS),
+                "Unknown column or operator in 'Cty Has x' at position 6");
+    }
+
+    private static CompiledFilter compile(String expression) {
+        check(FilterExpression.isExpression(expression, HEADERS), "is an expression: " + expression);
+        return FilterExpression.compile(expression, HEADERS);
+    }
+
+    private static void checkError(String expression, String expected) {
+        try {
+            FilterExpression.compile(expression, HEADERS);
+        } catch (IllegalArgumentException e) {
+            checkEquals(e.getMessage(), expected);
+            return;
+        }
+        throw new AssertionError("No error for " + expression);
+    }
+
+    private static void checkEquals(String actual, String expected) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError("Expected \"" + expected + "\" but got \"" + actual + "\"");
+        }
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new AssertionError(description);
+        }
+    }
+}